@@ -0,0 +1,91 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.plugins.resharper.ReSharperIssue;
+import org.sonar.plugins.resharper.ReSharperIssueHandler;
+import org.sonar.plugins.resharper.ReSharperReportParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of {@link ReSharperReportParser} on generated reports, with the StAX parser or the
+ * memory-mapped {@link org.sonar.plugins.resharper.ReSharperReportScanner}, which is sequential and ignores {@code threads}.
+ * Run with {@code -prof gc} and divide {@code gc.alloc.rate.norm} by {@code issues} to get bytes allocated per issue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ReSharperReportParserBenchmark {
+
+  @Param({"10000", "1000000", "10000000"})
+  public int issues;
+
+  @Param({"1", "4"})
+  public int threads;
+
+  @Param({"stax", "scanner"})
+  public String engine;
+
+  private File report;
+  private ReSharperReportParser parser;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    report = File.createTempFile("resharper-report-" + issues + "-", ".xml");
+    ReportGenerator.generate(report, issues);
+    parser = new ReSharperReportParser(threads, "scanner".equals(engine));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    report.delete();
+  }
+
+  @Benchmark
+  public void parse(final Blackhole blackhole) {
+    parser.parse(report, new ReSharperIssueHandler() {
+      @Override
+      public void handle(ReSharperIssue issue) {
+        blackhole.consume(issue);
+      }
+    });
+  }
+
+}
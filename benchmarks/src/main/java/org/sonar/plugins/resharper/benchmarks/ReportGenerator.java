@@ -0,0 +1,152 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes InspectCode-shaped reports of a given size, with a fixed seed so that every run parses the same bytes.
+ * Issue types follow a skewed distribution (a handful of rules produce most issues, as in real solutions),
+ * files are nested a few folders deep below their project, and messages embed identifiers and XML entities.
+ */
+public final class ReportGenerator {
+
+  private static final String[] ISSUE_TYPES = {
+    "RedundantUsingDirective",
+    "UnusedMember.Global",
+    "InconsistentNaming",
+    "MemberCanBePrivate.Global",
+    "SuggestUseVarKeywordEvident",
+    "RedundantNameQualifier",
+    "JoinDeclarationAndInitializer",
+    "UnusedAutoPropertyAccessor.Global",
+    "PossibleNullReferenceException",
+    "CSharpWarnings::CS0618",
+    "CSharpWarnings::CS1591",
+    "ClassNeverInstantiated.Global",
+    "FieldCanBeMadeReadOnly.Local",
+    "ConvertToAutoProperty",
+    "AccessToModifiedClosure",
+    "VBWarnings::BC42024"
+  };
+
+  private static final String[] MESSAGES = {
+    "Using directive is not required by the code and can be safely removed",
+    "Method '%s' is never used",
+    "Name '%s' does not match rule 'Methods, properties and events'. Suggested name is '%s'.",
+    "Member '%s' can be made private",
+    "Use implicitly typed local variable declaration",
+    "Qualifier is redundant",
+    "Join declaration and assignment",
+    "Auto-property accessor '%s.get' is never used",
+    "Possible 'System.NullReferenceException'",
+    "'%s' is obsolete: 'Use %s&lt;T&gt; instead'",
+    "Missing XML comment for publicly visible type or member '%s'",
+    "Class '%s' is never instantiated",
+    "Field '%s' can be made readonly",
+    "Convert to auto-property",
+    "Access to modified closure",
+    "Unused local variable '%s'"
+  };
+
+  private static final String[] FOLDERS = {"Services", "Models", "Controllers", "Infrastructure", "Data", "Views", "Helpers", "Tests"};
+  private static final String[] NAMES = {"Customer", "Order", "Invoice", "Repository", "Handler", "Factory", "Provider", "Context", "Mapper", "Validator"};
+
+  private static final int ISSUES_PER_FILE = 40;
+  private static final int FILES_PER_PROJECT = 250;
+
+  private ReportGenerator() {
+  }
+
+  public static void generate(File file, int issues) throws IOException {
+    Random random = new Random(42);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    try {
+      writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+      writer.write("<!-- Generated by InspectCode 8.1.23.523 -->\n");
+      writer.write("<Report ToolsVersion=\"8.1\">\n");
+      writer.write("  <Information>\n    <Solution>Benchmark.sln</Solution>\n");
+      writer.write("    <InspectionScope>\n      <Element>Solution</Element>\n    </InspectionScope>\n  </Information>\n");
+      writer.write("  <IssueTypes>\n");
+      for (String issueType : ISSUE_TYPES) {
+        writer.write("    <IssueType Id=\"" + issueType + "\" Category=\"Benchmark\" Description=\"" + issueType + "\" Severity=\"WARNING\" />\n");
+      }
+      writer.write("  </IssueTypes>\n  <Issues>\n");
+
+      int files = Math.max(1, issues / ISSUES_PER_FILE);
+      int written = 0;
+      for (int fileIndex = 0; fileIndex < files; fileIndex++) {
+        int project = fileIndex / FILES_PER_PROJECT;
+        if (fileIndex % FILES_PER_PROJECT == 0) {
+          if (fileIndex > 0) {
+            writer.write("    </Project>\n");
+          }
+          writer.write("    <Project Name=\"Company.Product.Module" + project + "\">\n");
+        }
+        String path = "Company.Product.Module" + project + "\\" + FOLDERS[fileIndex % FOLDERS.length] + "\\"
+          + FOLDERS[(fileIndex / FOLDERS.length) % FOLDERS.length] + "\\" + NAMES[fileIndex % NAMES.length] + fileIndex + ".cs";
+        int count = fileIndex == files - 1 ? issues - written : Math.min(ISSUES_PER_FILE, issues - written);
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+          int type = skewed(random);
+          int length = 5 + random.nextInt(40);
+          int line = 1 + offset / 40;
+          writer.write("      <Issue TypeId=\"");
+          writer.write(ISSUE_TYPES[type]);
+          writer.write("\" File=\"");
+          writer.write(path);
+          writer.write("\" Offset=\"" + offset + "-" + (offset + length) + "\" Line=\"" + line + "\" Message=\"");
+          writer.write(message(type, random));
+          writer.write("\" />\n");
+          offset += length + random.nextInt(400);
+        }
+        written += count;
+      }
+      writer.write("    </Project>\n  </Issues>\n</Report>\n");
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Index in ISSUE_TYPES, roughly halving the probability at each step.
+   */
+  private static int skewed(Random random) {
+    int index = Integer.numberOfTrailingZeros(random.nextInt() | (1 << (ISSUE_TYPES.length - 1)));
+    return Math.min(index, ISSUE_TYPES.length - 1);
+  }
+
+  private static String message(int type, Random random) {
+    String identifier = NAMES[random.nextInt(NAMES.length)] + FOLDERS[random.nextInt(FOLDERS.length)] + random.nextInt(100);
+    return MESSAGES[type].replace("%s", identifier);
+  }
+
+  public static void main(String[] args) throws IOException {
+    generate(new File(args[0]), Integer.parseInt(args[1]));
+  }
+
+}
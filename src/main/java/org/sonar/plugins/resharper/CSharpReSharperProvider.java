@@ -30,7 +30,7 @@ import java.util.List;
 
 public class CSharpReSharperProvider {
 
-  private static final ReSharperConfiguration RESHARPER_CONF = new ReSharperConfiguration("cs", "resharper-cs");
+  private static final ReSharperConfiguration RESHARPER_CONF = ReSharperConfiguration.CSHARP;
 
   private CSharpReSharperProvider() {
   }
@@ -38,7 +38,8 @@ public class CSharpReSharperProvider {
   public static List extensions() {
     return ImmutableList.of(
       CSharpReSharperRuleRepository.class,
-      CSharpReSharperSensor.class);
+      CSharpReSharperSensor.class,
+      CSharpReSharperInitializer.class);
   }
 
   public static class CSharpReSharperRuleRepository extends ReSharperRuleRepository {
@@ -51,8 +52,17 @@ public class CSharpReSharperProvider {
 
   public static class CSharpReSharperSensor extends ReSharperSensor {
 
-    public CSharpReSharperSensor(Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives) {
-      super(RESHARPER_CONF, settings, profile, fileSystem, perspectives);
+    public CSharpReSharperSensor(Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives,
+      ReSharperSolutionRuns solutionRuns) {
+      super(RESHARPER_CONF, settings, profile, fileSystem, perspectives, solutionRuns);
+    }
+
+  }
+
+  public static class CSharpReSharperInitializer extends ReSharperInitializer {
+
+    public CSharpReSharperInitializer(CSharpReSharperSensor sensor) {
+      super(sensor);
     }
 
   }
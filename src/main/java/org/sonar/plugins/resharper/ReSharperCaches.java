@@ -0,0 +1,164 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Caches home shared by the solutions analysed on an agent: each solution gets its own subdirectory, and the least
+ * recently used subdirectories are deleted once the total size exceeds the budget, so that the active solutions keep
+ * warm caches without the disk filling up.
+ */
+public class ReSharperCaches {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperCaches.class);
+  static final String LAST_USED_FILE_NAME = ".last-used";
+
+  private final File root;
+  private final long maxBytes;
+
+  public ReSharperCaches(File root, long maxBytes) {
+    this.root = root;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Caches directory of the given solution, marked as just used. Caches of other solutions may be evicted.
+   */
+  public File acquire(File solution, ReSharperRunProfile runProfile) {
+    File dir = new File(root, dirName(solution));
+    File lastUsed = new File(dir, LAST_USED_FILE_NAME);
+    boolean hit = lastUsed.isFile();
+    if (hit) {
+      LOG.info("Reusing the ReSharper caches " + dir.getAbsolutePath());
+    } else {
+      LOG.info("No ReSharper caches yet for this solution, cold start in " + dir.getAbsolutePath());
+    }
+    runProfile.set("cachesHit", hit ? 1 : 0);
+
+    try {
+      FileUtils.touch(lastUsed);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+    runProfile.set("cachesEvicted", evict(dir));
+    return dir;
+  }
+
+  @VisibleForTesting
+  static String dirName(File solution) {
+    String path = solution.getAbsolutePath();
+    return solution.getName().replaceAll("[^A-Za-z0-9._-]", "_") + "-" + DigestUtils.md5Hex(path.toLowerCase()).substring(0, 8);
+  }
+
+  /**
+   * Lock held while InspectCode uses the given caches, see {@link ReSharperExecutor#setCachesLockTimeOut(int)}.
+   */
+  static File lockFile(File cachesDir) {
+    return new File(cachesDir.getPath() + ".lock");
+  }
+
+  /**
+   * Deletes the least recently used caches, except the given ones and the ones in use, until the total size fits in the budget.
+   */
+  private int evict(File keep) {
+    File[] dirs = root.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return new File(file, LAST_USED_FILE_NAME).isFile();
+      }
+    });
+    if (dirs == null) {
+      return 0;
+    }
+
+    List<CachesDir> cachesDirs = Lists.newArrayList();
+    long totalBytes = 0;
+    for (File dir : dirs) {
+      CachesDir cachesDir = new CachesDir(dir);
+      cachesDirs.add(cachesDir);
+      totalBytes += cachesDir.bytes;
+    }
+    Collections.sort(cachesDirs, new Comparator<CachesDir>() {
+      @Override
+      public int compare(CachesDir a, CachesDir b) {
+        return a.lastUsed < b.lastUsed ? -1 : (a.lastUsed == b.lastUsed ? 0 : 1);
+      }
+    });
+
+    int evicted = 0;
+    for (CachesDir cachesDir : cachesDirs) {
+      if (totalBytes <= maxBytes) {
+        break;
+      }
+      ReSharperLock lock = cachesDir.dir.equals(keep) ? null : ReSharperLock.tryAcquire(lockFile(cachesDir.dir));
+      if (lock != null) {
+        try {
+          LOG.info("Deleting the least recently used ReSharper caches " + cachesDir.dir.getAbsolutePath());
+          FileUtils.deleteQuietly(cachesDir.dir);
+          totalBytes -= cachesDir.bytes;
+          evicted++;
+        } finally {
+          lock.release();
+        }
+        // Released first, as an open file cannot be deleted on Windows
+        FileUtils.deleteQuietly(lock.file());
+      }
+    }
+    return evicted;
+  }
+
+  private static class CachesDir {
+
+    private final File dir;
+    private final long lastUsed;
+    private final long bytes;
+
+    public CachesDir(File dir) {
+      this.dir = dir;
+      this.lastUsed = new File(dir, LAST_USED_FILE_NAME).lastModified();
+      this.bytes = sizeOf(dir);
+    }
+
+    private static long sizeOf(File dir) {
+      try {
+        return FileUtils.sizeOfDirectory(dir);
+      } catch (IllegalArgumentException e) {
+        // Deleted meanwhile
+        return 0;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.command.Command;
+import org.sonar.api.utils.command.CommandExecutor;
+import org.sonar.api.utils.command.StreamConsumer;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files changed since the last analysis, as paths relative to the solution directory, when running in incremental mode.
+ * They are either given explicitly, or computed from the git working tree holding the solution.
+ * They are passed to InspectCode in a single argument: above {@link #MAX_INCLUDE_LENGTH} characters, which would
+ * not fit on a Windows command line, the whole solution is inspected instead.
+ */
+public class ReSharperChangedFiles {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperChangedFiles.class);
+  private static final long GIT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * Leaves room for the other arguments within the 32767 characters of a Windows command line.
+   */
+  @VisibleForTesting
+  static final int MAX_INCLUDE_LENGTH = 16 * 1024;
+
+  private final Settings settings;
+
+  public ReSharperChangedFiles(Settings settings) {
+    this.settings = settings;
+  }
+
+  /**
+   * Returns the changed files, or null if the analysis is not incremental.
+   */
+  @Nullable
+  public List<String> get(File solutionFile) {
+    List<String> files = listChangedFiles(solutionFile);
+    if (files != null && includeLength(files) > MAX_INCLUDE_LENGTH) {
+      LOG.info("Too many changed files to pass them to InspectCode (" + files.size() + "), inspecting the whole solution.");
+      return null;
+    }
+    return files;
+  }
+
+  @Nullable
+  private List<String> listChangedFiles(File solutionFile) {
+    String[] changedFiles = settings.getStringArray(ReSharperPlugin.CHANGED_FILES_PROPERTY_KEY);
+    if (changedFiles.length > 0) {
+      return ImmutableList.copyOf(changedFiles);
+    }
+
+    String gitBase = settings.getString(ReSharperPlugin.CHANGED_FILES_GIT_BASE_PROPERTY_KEY);
+    if (StringUtils.isNotEmpty(gitBase)) {
+      File solutionDir = solutionFile.getAbsoluteFile().getParentFile();
+      List<String> files = Lists.newArrayList();
+      // Deleted files cannot be inspected
+      files.addAll(git(solutionDir, "diff", "--name-only", "--relative", "--diff-filter=d", gitBase));
+      files.addAll(git(solutionDir, "ls-files", "--others", "--exclude-standard"));
+      LOG.info("Found " + files.size() + " files changed since " + gitBase);
+      return files;
+    }
+
+    return null;
+  }
+
+  private static int includeLength(List<String> files) {
+    int length = 0;
+    for (String file : files) {
+      length += file.length() + 1;
+    }
+    return length;
+  }
+
+  private static List<String> git(File directory, String... arguments) {
+    Command command = Command.create("git").setDirectory(directory).addArguments(arguments);
+    LOG.debug("Listing the changed files: " + command.toCommandLine());
+
+    final List<String> files = Lists.newArrayList();
+    int exitCode = CommandExecutor.create().execute(command, new StreamConsumer() {
+      @Override
+      public void consumeLine(String line) {
+        if (StringUtils.isNotBlank(line)) {
+          files.add(line.trim());
+        }
+      }
+    }, new StreamConsumer() {
+      @Override
+      public void consumeLine(String line) {
+        LOG.warn(line);
+      }
+    }, GIT_TIMEOUT_MILLIS);
+
+    if (exitCode != 0) {
+      throw new ReSharperException("Unable to list the changed files, \"" + command.toCommandLine() + "\" returned " + exitCode);
+    }
+    return files;
+  }
+
+}
@@ -19,8 +19,20 @@
  */
 package org.sonar.plugins.resharper;
 
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
 public class ReSharperConfiguration {
 
+  public static final ReSharperConfiguration CSHARP = new ReSharperConfiguration("cs", "resharper-cs");
+  public static final ReSharperConfiguration VBNET = new ReSharperConfiguration("vbnet", "resharper-vbnet");
+
+  /**
+   * Languages inspected by a same InspectCode run of a mixed-language solution.
+   */
+  public static final List<ReSharperConfiguration> ALL = ImmutableList.of(CSHARP, VBNET);
+
   private final String languageKey;
   private final String repositoryKey;
 
@@ -22,32 +22,84 @@ package org.sonar.plugins.resharper;
 import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import com.google.common.io.Files;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.plugins.resharper.ReSharperRule.ReSharperSeverity;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.util.Arrays;
+import java.util.Map;
 
+/**
+ * Writes the InspectCode settings. The file is only replaced when its content changes, so that its modification time,
+ * on which the InspectCode caches depend, is preserved from one analysis to the next.
+ */
 public class ReSharperDotSettingsWriter {
 
-  public void write(List<String> ruleKeys, File file) {
-    StringBuilder sb = new StringBuilder();
-
-    sb.append("<wpf:ResourceDictionary xml:space=\"preserve\" xmlns:x=\"http://schemas.microsoft.com/winfx/2006/xaml\"");
-    sb.append(" xmlns:s=\"clr-namespace:System;assembly=mscorlib\" xmlns:ss=\"urn:shemas-jetbrains-com:settings-storage-xaml\"");
-    appendLine(sb, " xmlns:wpf=\"http://schemas.microsoft.com/winfx/2006/xaml/presentation\">");
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperDotSettingsWriter.class);
 
-    for (String ruleKey : ruleKeys) {
-      String escapedRuleKey = escapeRuleKey(ruleKey);
-      appendLine(sb, "  <s:String x:Key=\"/Default/CodeInspection/Highlighting/InspectionSeverities/=" + escapedRuleKey + "/@EntryIndexedValue\">WARNING</s:String>");
+  /**
+   * @param severities severity of each inspection, keyed by ReSharper TypeId
+   */
+  public void write(Map<String, ReSharperSeverity> severities, File file) {
+    File tmpFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+    try {
+      Files.createParentDirs(file);
+      byte[] md5 = write(severities, new FileOutputStream(tmpFile));
+      if (file.isFile() && Arrays.equals(md5, md5(file))) {
+        LOG.debug("The ReSharper settings {} are unchanged", file);
+        FileUtils.deleteQuietly(tmpFile);
+        return;
+      }
+      // File.renameTo() does not replace an existing file on Windows
+      if (!tmpFile.renameTo(file) && !(file.delete() && tmpFile.renameTo(file))) {
+        throw new IOException("Unable to rename " + tmpFile + " to " + file);
+      }
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(tmpFile);
+      throw Throwables.propagate(e);
     }
+  }
 
-    appendLine(sb, "</wpf:ResourceDictionary>");
+  private static byte[] write(Map<String, ReSharperSeverity> severities, OutputStream out) throws IOException {
+    DigestOutputStream digestOut = new DigestOutputStream(out, DigestUtils.getMd5Digest());
+    Writer writer = new BufferedWriter(new OutputStreamWriter(digestOut, Charsets.UTF_8));
+    try {
+      writer.write("<wpf:ResourceDictionary xml:space=\"preserve\" xmlns:x=\"http://schemas.microsoft.com/winfx/2006/xaml\"");
+      writer.write(" xmlns:s=\"clr-namespace:System;assembly=mscorlib\" xmlns:ss=\"urn:shemas-jetbrains-com:settings-storage-xaml\"");
+      writeLine(writer, " xmlns:wpf=\"http://schemas.microsoft.com/winfx/2006/xaml/presentation\">");
 
+      for (Map.Entry<String, ReSharperSeverity> severity : severities.entrySet()) {
+        String escapedRuleKey = escapeRuleKey(severity.getKey());
+        writeLine(writer, "  <s:String x:Key=\"/Default/CodeInspection/Highlighting/InspectionSeverities/=" + escapedRuleKey + "/@EntryIndexedValue\">"
+          + severity.getValue().name() + "</s:String>");
+      }
+
+      writeLine(writer, "</wpf:ResourceDictionary>");
+    } finally {
+      writer.close();
+    }
+    return digestOut.getMessageDigest().digest();
+  }
+
+  private static byte[] md5(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
     try {
-      Files.write(sb.toString().getBytes(Charsets.UTF_8), file);
-    } catch (IOException e) {
-      throw Throwables.propagate(e);
+      return DigestUtils.md5(in);
+    } finally {
+      in.close();
     }
   }
 
@@ -55,9 +107,9 @@ public class ReSharperDotSettingsWriter {
     return ruleKey.replace(".", "_002E").replace(":", "_003A");
   }
 
-  private static void appendLine(StringBuilder sb, String s) {
-    sb.append(s);
-    sb.append(IOUtils.LINE_SEPARATOR);
+  private static void writeLine(Writer writer, String s) throws IOException {
+    writer.write(s);
+    writer.write(IOUtils.LINE_SEPARATOR);
   }
 
 }
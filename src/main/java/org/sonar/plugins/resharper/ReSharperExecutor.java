@@ -19,16 +19,24 @@
  */
 package org.sonar.plugins.resharper;
 
+import com.google.common.base.Throwables;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.command.Command;
-import org.sonar.api.utils.command.CommandException;
-import org.sonar.api.utils.command.CommandExecutor;
 
 import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 public class ReSharperExecutor {
@@ -49,6 +57,21 @@ public class ReSharperExecutor {
 
 	private int timeout;
 
+	private int stallTimeout;
+
+	private String cachesHome;
+
+	private int cachesLockTimeout;
+
+	private List<String> shardProjects = new ArrayList<String>();
+
+	private int shards = 1;
+
+	private ReSharperRunProfile runProfile;
+
+	private ReSharperSlots slots;
+
+	private int runningProcesses;
 
 	/**
 	 * Sets the report file to generate
@@ -81,6 +104,16 @@ public class ReSharperExecutor {
 		this.timeout = timeout;
 		return this;
 	}
+
+	/**
+	 * Kills InspectCode once it did not print anything for the given number of minutes.
+	 * @param stallTimeout minutes without output, 0 to disable
+	 * @return this
+	 */
+	public ReSharperExecutor setStallTimeOut(int stallTimeout) {
+		this.stallTimeout = stallTimeout;
+		return this;
+	}
 	
 	/**
 	 * Adds the properties to the internal list of properties. Does not check for duplicates!
@@ -111,6 +144,14 @@ public class ReSharperExecutor {
 	 * @return the Command that represent the command to launch.
 	 */
 	public Command toCommand() {
+		List<String> projectNames = new ArrayList<String>();
+		if (StringUtils.isNotEmpty(projectName)) {
+			projectNames.add(projectName);
+		}
+		return toCommand(projectNames, resharperReportFile, cachesHome);
+	}
+
+	private Command toCommand(List<String> projectNames, File reportFile, String cachesHome) {
 
 		// $> c:\ThirdPartyTools\jb-commandline-8.0.0.39\inspectcode.exe /help
 		// InspectCode for .NET
@@ -138,12 +179,17 @@ public class ReSharperExecutor {
 		LOG.debug("- ReSharper program         : " + executable);
 		Command command = Command.create(executable.getAbsolutePath());
 
-		if(StringUtils.isNotEmpty(projectName)) {
-			LOG.debug("- Project name              : " + projectName);
-			command.addArgument("/project=" + projectName);
+		for (String name : projectNames) {
+			LOG.debug("- Project name              : " + name);
+			command.addArgument("/project=" + name);
+		}
+		LOG.debug("- Report file               : " + reportFile);
+		command.addArgument("/output=" + reportFile.getAbsolutePath());
+
+		if (StringUtils.isNotEmpty(cachesHome)) {
+			LOG.debug("- Caches home               : " + cachesHome);
+			command.addArgument("/caches-home=" + cachesHome);
 		}
-		LOG.debug("- Report file               : " + resharperReportFile);
-		command.addArgument("/output=" + resharperReportFile.getAbsolutePath());
 
 		LOG.debug("- Solution file               : " + solution);
 
@@ -189,8 +235,61 @@ public class ReSharperExecutor {
 	}
 
 	public void setCachesHome(String cachesHome) {
-		if(StringUtils.isEmpty(cachesHome)) return;
-		arguments.add("/caches-home=" + cachesHome);
+		this.cachesHome = cachesHome;
+	}
+
+	/**
+	 * Concurrent builds do not share a caches home: a build waits at most the given number of minutes for the one using it,
+	 * then works on a copy of it.
+	 * @param cachesLockTimeout minutes
+	 * @return this
+	 */
+	public ReSharperExecutor setCachesLockTimeOut(int cachesLockTimeout) {
+		this.cachesLockTimeout = cachesLockTimeout;
+		return this;
+	}
+
+	/**
+	 * Splits the inspection of the given projects of the solution over the given number of concurrent
+	 * InspectCode processes, each with its own report and caches. Ignored if a single project is set.
+	 * @param shards number of processes
+	 * @param projectNames projects of the solution
+	 * @return this
+	 */
+	public ReSharperExecutor setShards(int shards, List<String> projectNames) {
+		this.shards = shards;
+		this.shardProjects = new ArrayList<String>(projectNames);
+		return this;
+	}
+
+	/**
+	 * Restricts the inspection to the given files, relative to the solution directory. Used in incremental mode.
+	 * @param files
+	 */
+	public void setIncludedFiles(List<String> files) {
+		if (files == null || files.isEmpty()) return;
+		arguments.add("/include=" + StringUtils.join(files, ";"));
+	}
+
+	/**
+	 * Limits the number of InspectCode processes running at once on the agent: each process first waits for a slot.
+	 * @param slots
+	 * @return this
+	 */
+	public ReSharperExecutor setSlots(ReSharperSlots slots) {
+		this.slots = slots;
+		return this;
+	}
+
+	/**
+	 * Records the duration of the InspectCode execution in the given run profile: the "inspectCode" phase is the time during
+	 * which at least one InspectCode process runs, excluding the "waitSlot" phase
+	 * @param runProfile
+	 * @return this
+	 */
+	public ReSharperExecutor setRunProfile(ReSharperRunProfile runProfile) {
+		this.runProfile = runProfile;
+		return this;
 	}
 
 	public void setProfile(File file) {
@@ -199,9 +298,183 @@ public class ReSharperExecutor {
 	}
 
 	public int  execute() {
-		Command cmd=toCommand();
-		int exitCode = CommandExecutor.create().execute(cmd, TimeUnit.MINUTES.toMillis(timeout));
-		return exitCode;
+		String executionCachesHome = cachesHome;
+		ReSharperLock cachesLock = null;
+		File cachesClone = null;
+		try {
+			if (StringUtils.isNotEmpty(cachesHome)) {
+				startPhase("waitCachesLock");
+				cachesLock = ReSharperLock.acquire(ReSharperCaches.lockFile(new File(cachesHome)), TimeUnit.MINUTES.toMillis(cachesLockTimeout));
+				stopPhase("waitCachesLock");
+				if (cachesLock == null) {
+					cachesClone = new File(cachesHome + "-" + UUID.randomUUID());
+					cachesLock = ReSharperLock.tryAcquire(ReSharperCaches.lockFile(cachesClone));
+					if (cachesLock == null) {
+						throw new ReSharperException("Unable to lock the copy of the caches home " + cachesClone.getAbsolutePath());
+					}
+					cloneCachesHome(cachesClone);
+					executionCachesHome = cachesClone.getAbsolutePath();
+				}
+			}
+
+			if (shards > 1 && shardProjects.size() > 1 && StringUtils.isEmpty(projectName)) {
+				return executeSharded(executionCachesHome);
+			}
+			List<String> projectNames = new ArrayList<String>();
+			if (StringUtils.isNotEmpty(projectName)) {
+				projectNames.add(projectName);
+			}
+			Command cmd=toCommand(projectNames, resharperReportFile, executionCachesHome);
+			ReSharperProgress progress = new ReSharperProgress(solution, runProfile);
+			int exitCode = execute(cmd, progress);
+			LOG.info("InspectCode inspected " + progress.files() + " files in " + progress.projects() + " projects");
+			return exitCode;
+		} finally {
+			if (cachesLock != null) {
+				cachesLock.release();
+			}
+			if (cachesClone != null) {
+				FileUtils.deleteQuietly(cachesClone);
+				FileUtils.deleteQuietly(ReSharperCaches.lockFile(cachesClone));
+			}
+		}
+	}
+
+	/**
+	 * The caches home is used by another build for longer than we are willing to wait: work on a private copy of it,
+	 * which is still warmer than no caches at all, and discard it afterwards.
+	 * The copy is locked and marked as used before anything is copied, so that the eviction of {@link ReSharperCaches}
+	 * deletes it if the build dies before discarding it.
+	 */
+	private void cloneCachesHome(File clone) {
+		LOG.info("The caches home " + cachesHome + " is still in use, working on a copy of it in " + clone.getAbsolutePath());
+		startPhase("cloneCaches");
+		try {
+			FileUtils.touch(new File(clone, ReSharperCaches.LAST_USED_FILE_NAME));
+			File source = new File(cachesHome);
+			if (source.isDirectory()) {
+				FileUtils.copyDirectory(source, clone, new FileFilter() {
+					@Override
+					public boolean accept(File file) {
+						return !ReSharperCaches.LAST_USED_FILE_NAME.equals(file.getName());
+					}
+				});
+			}
+		} catch (IOException e) {
+			LOG.warn("Unable to copy the caches home, starting with empty caches: " + e.getMessage());
+		} finally {
+			stopPhase("cloneCaches");
+		}
+		if (runProfile != null) {
+			runProfile.set("cachesCloned", 1);
+		}
+	}
+
+	private void startPhase(String phase) {
+		if (runProfile != null) {
+			runProfile.start(phase);
+		}
+	}
+
+	private void stopPhase(String phase) {
+		if (runProfile != null) {
+			runProfile.stop(phase);
+		}
+	}
+
+	private int executeSharded(String executionCachesHome) {
+		int shardCount = Math.min(shards, shardProjects.size());
+		LOG.info("Running " + shardCount + " InspectCode processes on " + shardProjects.size() + " projects");
+		if (runProfile != null) {
+			runProfile.set("inspectCodeProcesses", shardCount);
+		}
+
+		List<List<String>> shardProjectNames = new ArrayList<List<String>>();
+		for (int i = 0; i < shardCount; i++) {
+			shardProjectNames.add(new ArrayList<String>());
+		}
+		for (int i = 0; i < shardProjects.size(); i++) {
+			shardProjectNames.get(i % shardCount).add(shardProjects.get(i));
+		}
+
+		List<File> shardReports = new ArrayList<File>();
+		List<Future<Integer>> exitCodes = new ArrayList<Future<Integer>>();
+		final ReSharperProgress progress = new ReSharperProgress(solution, runProfile);
+		ExecutorService executorService = Executors.newFixedThreadPool(shardCount);
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				File shardReport = new File(resharperReportFile.getParentFile(), "resharper-report-shard-" + i + ".xml");
+				shardReports.add(shardReport);
+				final Command cmd = toCommand(shardProjectNames.get(i), shardReport, shardCachesHome(executionCachesHome, i));
+				exitCodes.add(executorService.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						return execute(cmd, new ReSharperProgress(progress));
+					}
+				}));
+			}
+
+			int exitCode = 0;
+			for (int i = 0; i < shardCount; i++) {
+				int shardExitCode = exitCodes.get(i).get();
+				if (shardExitCode != 0) {
+					LOG.error("InspectCode failed with exit code " + shardExitCode + " on the shard " + i + " of the projects " + shardProjectNames.get(i));
+					if (exitCode == 0) {
+						exitCode = shardExitCode;
+					}
+				}
+			}
+			LOG.info("InspectCode inspected " + progress.files() + " files in " + progress.projects() + " projects");
+			if (exitCode != 0) {
+				// A report without the projects of the failed shards would silently close their issues
+				return exitCode;
+			}
+
+			startPhase("mergeReports");
+			new ReSharperReportMerger().merge(shardReports, resharperReportFile);
+			stopPhase("mergeReports");
+			return exitCode;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ReSharperException("Interrupted while waiting for InspectCode");
+		} catch (ExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private int execute(Command cmd, ReSharperProgress progress) {
+		ReSharperLock slot = slots == null ? null : slots.acquire(runProfile);
+		processStarted();
+		try {
+			return new ReSharperProcess(TimeUnit.MINUTES.toMillis(timeout), TimeUnit.MINUTES.toMillis(stallTimeout)).execute(cmd, progress);
+		} finally {
+			processStopped();
+			if (slot != null) {
+				slot.release();
+			}
+		}
+	}
+
+	private synchronized void processStarted() {
+		if (runningProcesses++ == 0) {
+			startPhase("inspectCode");
+		}
+	}
+
+	private synchronized void processStopped() {
+		if (--runningProcesses == 0) {
+			stopPhase("inspectCode");
+		}
+	}
+
+	/**
+	 * Concurrent InspectCode processes must not share their caches.
+	 */
+	private String shardCachesHome(String executionCachesHome, int shard) {
+		File root = StringUtils.isEmpty(executionCachesHome) ? new File(resharperReportFile.getParentFile(), "resharper-caches") : new File(executionCachesHome);
+		return new File(root, "shard-" + shard).getAbsolutePath();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,227 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.issue.Issuable;
+import org.sonar.api.scan.filesystem.FileQuery;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the source files of a module, keyed by their path relative to the solution directory as written in
+ * ReSharper reports. Keys are case insensitive, as are the Windows paths reported by InspectCode.
+ * The index is built once per module, after which resolving the file of an issue is a single hash lookup, in an
+ * immutable map which the report parser threads read without locking.
+ */
+public class ReSharperFileIndex {
+
+  private final ModuleFileSystem fileSystem;
+  private final String languageKey;
+
+  private volatile Snapshot snapshot;
+
+  public ReSharperFileIndex(ModuleFileSystem fileSystem, String languageKey) {
+    this.fileSystem = fileSystem;
+    this.languageKey = languageKey;
+  }
+
+  public boolean hasLanguageFiles() {
+    return !languageFiles().isEmpty();
+  }
+
+  /**
+   * Builds the index for the given solution, unless already done, so that the report parser threads only read it.
+   */
+  public void index(File solutionFile) {
+    snapshot(solutionFile);
+  }
+
+  /**
+   * Returns the source file of the module at the given path relative to the solution, or null if it is not part of the module.
+   */
+  @Nullable
+  public Entry get(File solutionFile, String filePath) {
+    return snapshot(solutionFile).entriesByPath.get(key(filePath));
+  }
+
+  private List<File> languageFiles() {
+    return fileSystem.files(FileQuery.onSource().onLanguage(languageKey));
+  }
+
+  private Snapshot snapshot(File solutionFile) {
+    Snapshot current = snapshot;
+    if (current == null || !current.solutionFile.equals(solutionFile)) {
+      File dir = solutionFile.getAbsoluteFile().getParentFile();
+      current = new Snapshot(solutionFile, dir, current != null && current.solutionDir.equals(dir) ? current.entriesByPath : entriesByPath(dir));
+      snapshot = current;
+    }
+    return current;
+  }
+
+  private Map<String, Entry> entriesByPath(File solutionDir) {
+    Map<String, Entry> entriesByPath = Maps.newHashMap();
+    String solutionPath = normalize(solutionDir.getAbsolutePath());
+    Set<File> ofLanguage = Sets.newHashSet(languageFiles());
+    for (File file : fileSystem.files(FileQuery.onSource())) {
+      String key = key(relativePath(solutionPath, normalize(file.getAbsolutePath())));
+      if (!entriesByPath.containsKey(key)) {
+        entriesByPath.put(key, new Entry(file, ofLanguage.contains(file) ? languageKey : null));
+      }
+    }
+    return ImmutableMap.copyOf(entriesByPath);
+  }
+
+  private static String key(String path) {
+    return normalize(path).toLowerCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Uses '/' as separator and resolves the "." and ".." segments, keeping the leading ".." of relative paths.
+   */
+  private static String normalize(String path) {
+    String unixPath = path.replace('\\', '/');
+    if (!unixPath.contains("/.") && !unixPath.startsWith(".")) {
+      return unixPath;
+    }
+
+    List<String> segments = Lists.newArrayList();
+    for (String segment : unixPath.split("/", -1)) {
+      if (".".equals(segment)) {
+        continue;
+      } else if ("..".equals(segment) && !segments.isEmpty() && !"..".equals(segments.get(segments.size() - 1))) {
+        segments.remove(segments.size() - 1);
+      } else {
+        segments.add(segment);
+      }
+    }
+    return join(segments);
+  }
+
+  private static String relativePath(String basePath, String path) {
+    if (path.startsWith(basePath + "/")) {
+      return path.substring(basePath.length() + 1);
+    }
+
+    String[] baseSegments = basePath.split("/");
+    String[] segments = path.split("/");
+    int common = 0;
+    while (common < baseSegments.length && common < segments.length && baseSegments[common].equalsIgnoreCase(segments[common])) {
+      common++;
+    }
+
+    List<String> relativeSegments = Lists.newArrayList();
+    for (int i = common; i < baseSegments.length; i++) {
+      relativeSegments.add("..");
+    }
+    for (int i = common; i < segments.length; i++) {
+      relativeSegments.add(segments[i]);
+    }
+    return join(relativeSegments);
+  }
+
+  private static String join(List<String> segments) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < segments.size(); i++) {
+      if (i > 0) {
+        sb.append('/');
+      }
+      sb.append(segments.get(i));
+    }
+    return sb.toString();
+  }
+
+  private static class Snapshot {
+
+    private final File solutionFile;
+    private final File solutionDir;
+    private final Map<String, Entry> entriesByPath;
+
+    public Snapshot(File solutionFile, File solutionDir, Map<String, Entry> entriesByPath) {
+      this.solutionFile = solutionFile;
+      this.solutionDir = solutionDir;
+      this.entriesByPath = entriesByPath;
+    }
+
+  }
+
+  public static class Entry {
+
+    private final File file;
+    private final String languageKey;
+    private boolean resolved;
+    private org.sonar.api.resources.File resource;
+    private Issuable issuable;
+
+    public Entry(File file, @Nullable String languageKey) {
+      this.file = file;
+      this.languageKey = languageKey;
+    }
+
+    public File file() {
+      return file;
+    }
+
+    /**
+     * Key of the language of the index, or null if the file belongs to another language.
+     */
+    @Nullable
+    public String languageKey() {
+      return languageKey;
+    }
+
+    /**
+     * The SonarQube resource of the file, resolved on first use.
+     */
+    @Nullable
+    public org.sonar.api.resources.File resource(FileProvider fileProvider) {
+      if (!resolved) {
+        resource = fileProvider.fromIOFile(file);
+        resolved = true;
+      }
+      return resource;
+    }
+
+    /**
+     * The issuable perspective of the file, resolved on first use.
+     */
+    @Nullable
+    public Issuable issuable(FileProvider fileProvider, ResourcePerspectives perspectives) {
+      org.sonar.api.resources.File sonarFile = resource(fileProvider);
+      if (issuable == null && sonarFile != null) {
+        issuable = perspectives.as(Issuable.class, sonarFile);
+      }
+      return issuable;
+    }
+
+  }
+
+}
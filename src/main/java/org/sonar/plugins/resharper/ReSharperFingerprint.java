@@ -0,0 +1,178 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.apache.commons.codec.binary.Hex;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Fingerprint of everything an InspectCode run depends on: the solution and its project files, the size and
+ * modification time of the files in the project directories, the settings files, the InspectCode binary and
+ * its command line (which holds the MSBuild properties). Stored next to the report, it tells whether the
+ * report of the previous run in the same working directory can be reused. The directories written by the
+ * analysis itself, which change on every run, are left out of the project directories.
+ */
+public class ReSharperFingerprint {
+
+  private static final String[] IGNORED_DIRECTORIES = {"bin", "obj", ".git", ".svn", ".vs", "_ReSharper.Caches"};
+
+  private final MessageDigest digest;
+  private final Set<String> ignoredPaths = Sets.newHashSet();
+
+  public ReSharperFingerprint() {
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Excludes a directory written by the analysis itself, such as its working directory, from the project directories.
+   * To be called before {@link #addSolution(ReSharperSolution)}.
+   */
+  public ReSharperFingerprint ignoreDirectory(@Nullable File dir) {
+    if (dir != null) {
+      ignoredPaths.add(canonicalPath(dir));
+    }
+    return this;
+  }
+
+  public ReSharperFingerprint addSolution(ReSharperSolution solution) {
+    addFileContents(solution.file());
+    for (ReSharperSolution.Project project : solution.projects()) {
+      addFileContents(project.file());
+      addDirectory(project.file().getParentFile());
+    }
+    return this;
+  }
+
+  public ReSharperFingerprint addFileContents(@Nullable File file) {
+    if (file != null && file.isFile()) {
+      add(file.getAbsolutePath());
+      try {
+        digest.update(Files.toByteArray(file));
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * The size and modification time of a binary are used as its version, to avoid launching it.
+   */
+  public ReSharperFingerprint addFileStamp(File file) {
+    add(file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified());
+    return this;
+  }
+
+  public ReSharperFingerprint add(String value) {
+    digest.update(value.getBytes(Charsets.UTF_8));
+    digest.update((byte) 0);
+    return this;
+  }
+
+  private void addDirectory(File dir) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+
+    Arrays.sort(children);
+    for (File child : children) {
+      if (child.isDirectory()) {
+        if (!isIgnored(child)) {
+          addDirectory(child);
+        }
+      } else {
+        addFileStamp(child);
+      }
+    }
+  }
+
+  private boolean isIgnored(File dir) {
+    if (!ignoredPaths.isEmpty() && ignoredPaths.contains(canonicalPath(dir))) {
+      return true;
+    }
+    for (String ignored : IGNORED_DIRECTORIES) {
+      if (ignored.equalsIgnoreCase(dir.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String canonicalPath(File file) {
+    try {
+      return file.getCanonicalPath();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public String toHex() {
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  /**
+   * Returns whether the given report exists and was produced for the given fingerprint.
+   */
+  public static boolean matches(File reportFile, String fingerprint) {
+    File fingerprintFile = fingerprintFile(reportFile);
+    if (!reportFile.isFile() || !fingerprintFile.isFile()) {
+      return false;
+    }
+    try {
+      return fingerprint.equals(Files.toString(fingerprintFile, Charsets.UTF_8).trim());
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static void save(File reportFile, String fingerprint) {
+    try {
+      Files.write(fingerprint, fingerprintFile(reportFile), Charsets.UTF_8);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  public static void delete(File reportFile) {
+    fingerprintFile(reportFile).delete();
+  }
+
+  private static File fingerprintFile(File reportFile) {
+    return new File(reportFile.getParentFile(), reportFile.getName() + ".fingerprint");
+  }
+
+}
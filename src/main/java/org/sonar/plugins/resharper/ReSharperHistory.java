@@ -0,0 +1,178 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Past InspectCode runs of a solution and project set, kept in a small tab separated file, one run per line:
+ * time, duration in milliseconds, issues, peak heap of the analysis in bytes.
+ * Used to predict the duration of the next run and to derive a timeout from it.
+ * Builds of the same solution may record their runs concurrently: the file is replaced as a whole, so that it is never
+ * read half written, at the cost of possibly losing the run of one of them.
+ */
+public class ReSharperHistory {
+
+  public static final String DIR_NAME = "resharper-history";
+
+  private static final int MAX_RUNS = 50;
+  private static final int MIN_RUNS_FOR_TIMEOUT = 5;
+  private static final double TIMEOUT_MARGIN = 2.0;
+  private static final long MIN_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private final File file;
+
+  public ReSharperHistory(File dir, String key) {
+    this.file = new File(new File(dir, DIR_NAME), DigestUtils.md5Hex(key) + ".tsv");
+  }
+
+  public List<Run> runs() {
+    List<Run> runs = Lists.newArrayList();
+    if (!file.isFile()) {
+      return runs;
+    }
+    try {
+      for (String line : Files.readLines(file, Charsets.UTF_8)) {
+        Iterator<String> fields = Splitter.on('\t').split(line).iterator();
+        try {
+          runs.add(new Run(Long.parseLong(fields.next()), Long.parseLong(fields.next()), Long.parseLong(fields.next()), Long.parseLong(fields.next())));
+        } catch (RuntimeException e) {
+          // Skip lines truncated by a concurrent write
+        }
+      }
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+    return runs;
+  }
+
+  public void record(long durationMillis, long issues, long peakHeapBytes) {
+    List<Run> runs = runs();
+    runs.add(new Run(System.currentTimeMillis(), durationMillis, issues, peakHeapBytes));
+    if (runs.size() > MAX_RUNS) {
+      runs = runs.subList(runs.size() - MAX_RUNS, runs.size());
+    }
+
+    StringBuilder sb = new StringBuilder();
+    for (Run run : runs) {
+      sb.append(run.time).append('\t').append(run.durationMillis).append('\t').append(run.issues).append('\t').append(run.peakHeapBytes).append('\n');
+    }
+    File tmpFile = null;
+    try {
+      Files.createParentDirs(file);
+      tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      Files.write(sb.toString(), tmpFile, Charsets.UTF_8);
+      // Not atomic on Windows, where renaming onto an existing file fails: readers then briefly see no history
+      if (!tmpFile.renameTo(file) && (!file.delete() || !tmpFile.renameTo(file))) {
+        throw new IOException("Unable to rename " + tmpFile.getAbsolutePath() + " to " + file.getAbsolutePath());
+      }
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      if (tmpFile != null) {
+        tmpFile.delete();
+      }
+    }
+  }
+
+  /**
+   * Median duration of the past runs, or null without history.
+   */
+  @Nullable
+  public Long predictedMillis() {
+    List<Long> durations = durations();
+    return durations.isEmpty() ? null : percentile(durations, 0.5);
+  }
+
+  /**
+   * 99th percentile of the past durations, times a safety margin, or 0 while the history is too short to tell.
+   */
+  public long timeoutMillis() {
+    List<Long> durations = durations();
+    if (durations.size() < MIN_RUNS_FOR_TIMEOUT) {
+      return 0;
+    }
+    return Math.max(MIN_TIMEOUT_MILLIS, (long) (percentile(durations, 0.99) * TIMEOUT_MARGIN));
+  }
+
+  private List<Long> durations() {
+    List<Long> durations = Lists.newArrayList();
+    for (Run run : runs()) {
+      durations.add(run.durationMillis);
+    }
+    Collections.sort(durations);
+    return durations;
+  }
+
+  /**
+   * Nearest-rank percentile of sorted values.
+   */
+  private static long percentile(List<Long> sortedValues, double percentile) {
+    int rank = (int) Math.ceil(percentile * sortedValues.size());
+    return sortedValues.get(Math.max(0, rank - 1));
+  }
+
+  public static class Run {
+
+    private final long time;
+    private final long durationMillis;
+    private final long issues;
+    private final long peakHeapBytes;
+
+    public Run(long time, long durationMillis, long issues, long peakHeapBytes) {
+      this.time = time;
+      this.durationMillis = durationMillis;
+      this.issues = issues;
+      this.peakHeapBytes = peakHeapBytes;
+    }
+
+    public long time() {
+      return time;
+    }
+
+    public long durationMillis() {
+      return durationMillis;
+    }
+
+    public long issues() {
+      return issues;
+    }
+
+    public long peakHeapBytes() {
+      return peakHeapBytes;
+    }
+
+  }
+
+}
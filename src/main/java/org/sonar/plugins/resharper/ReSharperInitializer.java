@@ -0,0 +1,46 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import org.sonar.api.batch.Initializer;
+import org.sonar.api.resources.Project;
+
+/**
+ * Initializers are executed before the sensors: starting InspectCode here lets it run while the other sensors do.
+ */
+public class ReSharperInitializer extends Initializer {
+
+  private final ReSharperSensor sensor;
+
+  public ReSharperInitializer(ReSharperSensor sensor) {
+    this.sensor = sensor;
+  }
+
+  @Override
+  public boolean shouldExecuteOnProject(Project project) {
+    return sensor.isAsynchronous() && sensor.shouldExecuteOnProject(project);
+  }
+
+  @Override
+  public void execute(Project project) {
+    sensor.startInspection(project);
+  }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import javax.annotation.Nullable;
+
+/**
+ * Decides from the raw TypeId and File attributes of an issue whether the report parser reports it, so that the
+ * issues to be discarded anyway are not decoded nor allocated.
+ */
+public interface ReSharperIssueFilter {
+
+  ReSharperIssueFilter ALL = new ReSharperIssueFilter() {
+    @Override
+    public boolean accept(String typeId, @Nullable String filePath) {
+      return true;
+    }
+  };
+
+  boolean accept(String typeId, @Nullable String filePath);
+
+}
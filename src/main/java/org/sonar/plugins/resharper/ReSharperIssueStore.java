@@ -0,0 +1,204 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact in-memory form of the issues of a report, filled by the parser without any issue object, for the reports
+ * kept until all the modules sharing them used them, and for the segments parsed ahead in parallel mode.
+ * Rule keys and file paths, few and repeated, are stored once in dictionaries and referenced by int codes, messages,
+ * mostly distinct, in a plain column, and the other values in int columns: a million issues take a few arrays plus
+ * their strings, instead of millions of small objects. They are read through a cursor, which only materializes the
+ * issues asked for.
+ */
+public class ReSharperIssueStore implements ReSharperRawIssueHandler {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final Dictionary ruleKeys = new Dictionary();
+  private final Dictionary filePaths = new Dictionary();
+
+  private int size;
+  private int[] reportLines = new int[INITIAL_CAPACITY];
+  private int[] ruleCodes = new int[INITIAL_CAPACITY];
+  private int[] fileCodes = new int[INITIAL_CAPACITY];
+  private int[] lines = new int[INITIAL_CAPACITY];
+  private int[] offsets = new int[INITIAL_CAPACITY];
+  private String[] messages = new String[INITIAL_CAPACITY];
+
+  @Override
+  public void handle(int reportLine, String typeId, @Nullable String filePath, int line, int offset, String message) {
+    if (size == reportLines.length) {
+      grow();
+    }
+    reportLines[size] = reportLine;
+    ruleCodes[size] = ruleKeys.code(typeId);
+    fileCodes[size] = filePath == null ? NONE : filePaths.code(filePath);
+    lines[size] = line;
+    offsets[size] = offset;
+    messages[size] = message;
+    size++;
+  }
+
+  /**
+   * Hands the issues over to the given handler, in order.
+   */
+  public void replay(ReSharperRawIssueHandler handler) {
+    for (int i = 0; i < size; i++) {
+      int fileCode = fileCodes[i];
+      handler.handle(reportLines[i], ruleKeys.value(ruleCodes[i]), fileCode == NONE ? null : filePaths.value(fileCode), lines[i], offsets[i], messages[i]);
+    }
+  }
+
+  private void grow() {
+    int capacity = reportLines.length + (reportLines.length >> 1);
+    reportLines = Arrays.copyOf(reportLines, capacity);
+    ruleCodes = Arrays.copyOf(ruleCodes, capacity);
+    fileCodes = Arrays.copyOf(fileCodes, capacity);
+    lines = Arrays.copyOf(lines, capacity);
+    offsets = Arrays.copyOf(offsets, capacity);
+    messages = Arrays.copyOf(messages, capacity);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Number of distinct file paths, the file codes ranging from 0 to it excluded.
+   */
+  public int fileCount() {
+    return filePaths.size();
+  }
+
+  public int ruleCount() {
+    return ruleKeys.size();
+  }
+
+  /**
+   * Returns a new cursor, positioned before the first issue.
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  /**
+   * Flyweight view of the issue at its current position.
+   */
+  public class Cursor {
+
+    private int index = -1;
+
+    private Cursor() {
+    }
+
+    /**
+     * Moves to the next issue, and returns false if there is none.
+     */
+    public boolean next() {
+      if (index + 1 >= size) {
+        index = size;
+        return false;
+      }
+      index++;
+      return true;
+    }
+
+    public int reportLine() {
+      return reportLines[index];
+    }
+
+    public int ruleCode() {
+      return ruleCodes[index];
+    }
+
+    public String ruleKey() {
+      return ruleKeys.value(ruleCodes[index]);
+    }
+
+    /**
+     * Code of the file path, or {@link ReSharperIssueStore#NONE} if the issue has none.
+     */
+    public int fileCode() {
+      return fileCodes[index];
+    }
+
+    @Nullable
+    public String filePath() {
+      int fileCode = fileCodes[index];
+      return fileCode == NONE ? null : filePaths.value(fileCode);
+    }
+
+    @Nullable
+    public Integer line() {
+      int line = lines[index];
+      return line == NONE ? null : line;
+    }
+
+    @Nullable
+    public Integer offset() {
+      int offset = offsets[index];
+      return offset == NONE ? null : offset;
+    }
+
+    public String message() {
+      return messages[index];
+    }
+
+    public ReSharperIssue issue() {
+      return new ReSharperIssue(reportLine(), ruleKey(), filePath(), line(), offset(), message());
+    }
+
+  }
+
+  private static class Dictionary {
+
+    private final Map<String, Integer> codes = Maps.newHashMap();
+    private final List<String> values = Lists.newArrayList();
+
+    public int code(String value) {
+      Integer code = codes.get(value);
+      if (code == null) {
+        code = values.size();
+        codes.put(value, code);
+        values.add(value);
+      }
+      return code;
+    }
+
+    public String value(int code) {
+      return values.get(code);
+    }
+
+    public int size() {
+      return values.size();
+    }
+
+  }
+
+}
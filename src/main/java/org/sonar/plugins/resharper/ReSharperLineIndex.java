@@ -0,0 +1,200 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Resolves to lines the character offsets InspectCode reports for the issues without a line, such as the file-level ones.
+ * The line starts of a file are computed the first time one of its offsets is resolved, by decoding the memory-mapped
+ * file once with the charset of its BOM or else of the sources, and are then cached for the analysis.
+ */
+public class ReSharperLineIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperLineIndex.class);
+
+  private static final int CHUNK_CHARS = 8 * 1024;
+
+  private final Charset charset;
+  private final Map<File, int[]> lineStartsByFile = Maps.newHashMap();
+
+  public ReSharperLineIndex(@Nullable Charset charset) {
+    this.charset = charset == null ? Charsets.UTF_8 : charset;
+  }
+
+  /**
+   * Returns the line, starting at 1, of the given character offset of the file, or null if it is outside of it.
+   */
+  @Nullable
+  public Integer line(File file, int offset) {
+    int[] lineStarts = lineStartsByFile.get(file);
+    if (lineStarts == null) {
+      lineStarts = lineStarts(file);
+      lineStartsByFile.put(file, lineStarts);
+    }
+
+    // The last element is the length of the file
+    int lines = lineStarts.length - 1;
+    if (offset < 0 || offset > lineStarts[lines]) {
+      return null;
+    }
+    int index = Arrays.binarySearch(lineStarts, 0, lines, offset);
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  private int[] lineStarts(File file) {
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "r");
+      FileChannel channel = randomAccessFile.getChannel();
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try {
+        return lineStarts(buffer);
+      } finally {
+        ReSharperReportScanner.unmap(buffer);
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to read " + file.getAbsolutePath() + " to resolve the lines of its ReSharper issues: " + e.getMessage());
+      return new int[] {-1};
+    } finally {
+      Closeables.closeQuietly(randomAccessFile);
+    }
+  }
+
+  private int[] lineStarts(MappedByteBuffer buffer) {
+    CharsetDecoder decoder = bomCharset(buffer).newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(CHUNK_CHARS);
+    LineStarts lineStarts = new LineStarts();
+
+    CoderResult result;
+    do {
+      result = decoder.decode(buffer, chars, true);
+      lineStarts.add(chars);
+    } while (result.isOverflow());
+    while (decoder.flush(chars).isOverflow()) {
+      lineStarts.add(chars);
+    }
+    lineStarts.add(chars);
+
+    return lineStarts.toArray();
+  }
+
+  /**
+   * Skips the BOM of the file, which is not part of the text InspectCode reports offsets in, and returns its charset.
+   */
+  private Charset bomCharset(MappedByteBuffer buffer) {
+    if (startsWith(buffer, 0xEF, 0xBB, 0xBF)) {
+      buffer.position(3);
+      return Charsets.UTF_8;
+    } else if (startsWith(buffer, 0xFE, 0xFF)) {
+      buffer.position(2);
+      return Charsets.UTF_16BE;
+    } else if (startsWith(buffer, 0xFF, 0xFE)) {
+      buffer.position(2);
+      return Charsets.UTF_16LE;
+    }
+    return charset;
+  }
+
+  private static boolean startsWith(MappedByteBuffer buffer, int... bom) {
+    if (buffer.limit() < bom.length) {
+      return false;
+    }
+    for (int i = 0; i < bom.length; i++) {
+      if ((buffer.get(i) & 0xFF) != bom[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Offsets of the characters following a line break: "\n", "\r\n" or a lone "\r".
+   */
+  private static class LineStarts {
+
+    private int[] starts = new int[256];
+    private int count;
+    private int position;
+    private boolean afterCarriageReturn;
+
+    public LineStarts() {
+      append(0);
+    }
+
+    /**
+     * Consumes the decoded characters of the buffer, and clears it.
+     */
+    public void add(CharBuffer chars) {
+      chars.flip();
+      while (chars.hasRemaining()) {
+        char c = chars.get();
+        if (afterCarriageReturn && c != '\n') {
+          append(position);
+        }
+        if (c == '\n') {
+          append(position + 1);
+        }
+        afterCarriageReturn = c == '\r';
+        position++;
+      }
+      chars.clear();
+    }
+
+    public int[] toArray() {
+      if (afterCarriageReturn) {
+        append(position);
+        afterCarriageReturn = false;
+      }
+      append(position);
+      return Arrays.copyOf(starts, count);
+    }
+
+    private void append(int start) {
+      if (count == starts.length) {
+        starts = Arrays.copyOf(starts, 2 * count);
+      }
+      starts[count++] = start;
+    }
+
+  }
+
+}
@@ -0,0 +1,214 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileLock;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Lock shared by the builds of an agent, held through an operating system lock on a lock file, so that it is released
+ * even if its holder dies. The holder writes its identity in the file and clears it on release: a lock file which is
+ * not locked but still names a holder was left by a build which crashed, and is taken over.
+ * On POSIX systems, closing any descriptor of a file releases all the locks the process holds on it: the locks held
+ * by this process are therefore registered, and their files are only read and written through the descriptor holding
+ * the lock, never opened again while held.
+ */
+public class ReSharperLock {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperLock.class);
+
+  /**
+   * The lock is taken on a single byte far beyond the content, which other processes can then still read, even on Windows.
+   */
+  private static final long LOCKED_POSITION = Long.MAX_VALUE - 1;
+  private static final long MAX_POLL_MILLIS = 1000;
+
+  /**
+   * Locks held by this process, by canonical path of their file. Guards the opening and closing of all lock files.
+   */
+  private static final Map<String, ReSharperLock> HELD = Maps.newHashMap();
+
+  private final File lockFile;
+  private final String path;
+  private final RandomAccessFile file;
+  private final FileLock lock;
+
+  private ReSharperLock(File lockFile, String path, RandomAccessFile file, FileLock lock) {
+    this.lockFile = lockFile;
+    this.path = path;
+    this.file = file;
+    this.lock = lock;
+  }
+
+  /**
+   * @return the lock, or null if it is held, by this or another process
+   */
+  @Nullable
+  public static ReSharperLock tryAcquire(File lockFile) {
+    synchronized (HELD) {
+      RandomAccessFile file = null;
+      try {
+        String path = path(lockFile);
+        if (HELD.containsKey(path)) {
+          return null;
+        }
+
+        Files.createParentDirs(lockFile);
+        file = new RandomAccessFile(lockFile, "rw");
+        FileLock lock = file.getChannel().tryLock(LOCKED_POSITION, 1, false);
+        if (lock == null) {
+          // Safe to close: this process holds no lock on the file
+          IOUtils.closeQuietly(file);
+          return null;
+        }
+
+        String staleOwner = read(file);
+        if (!staleOwner.isEmpty()) {
+          LOG.info("Taking over the stale lock " + lockFile.getAbsolutePath() + " of " + staleOwner);
+        }
+        file.setLength(0);
+        file.write((ManagementFactory.getRuntimeMXBean().getName() + " since " + new Date()).getBytes(Charsets.UTF_8));
+        ReSharperLock held = new ReSharperLock(lockFile, path, file, lock);
+        HELD.put(path, held);
+        return held;
+      } catch (IOException e) {
+        IOUtils.closeQuietly(file);
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+
+  /**
+   * Waits for the lock at most the given time.
+   * @return the lock, or null if it is still held after the timeout
+   */
+  @Nullable
+  public static ReSharperLock acquire(File lockFile, long timeoutMillis) {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    long pollMillis = Math.min(MAX_POLL_MILLIS, Math.max(10, timeoutMillis / 10));
+    ReSharperLock lock = tryAcquire(lockFile);
+    boolean logged = false;
+    while (lock == null && System.currentTimeMillis() < deadline) {
+      if (!logged) {
+        LOG.info("Waiting for the lock " + lockFile.getAbsolutePath() + " held by " + owner(lockFile));
+        logged = true;
+      }
+      try {
+        Thread.sleep(pollMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ReSharperException("Interrupted while waiting for the lock " + lockFile.getAbsolutePath());
+      }
+      lock = tryAcquire(lockFile);
+    }
+    return lock;
+  }
+
+  /**
+   * Whether the lock is currently held, by this or another process. Does not change the lock file.
+   */
+  public static boolean isHeld(File lockFile) {
+    synchronized (HELD) {
+      RandomAccessFile file = null;
+      try {
+        if (HELD.containsKey(path(lockFile))) {
+          return true;
+        }
+        if (!lockFile.isFile()) {
+          return false;
+        }
+        file = new RandomAccessFile(lockFile, "rw");
+        FileLock lock = file.getChannel().tryLock(LOCKED_POSITION, 1, false);
+        if (lock == null) {
+          return true;
+        }
+        lock.release();
+        return false;
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      } finally {
+        IOUtils.closeQuietly(file);
+      }
+    }
+  }
+
+  /**
+   * Identity of the current or stale holder of the lock, empty if none.
+   */
+  public static String owner(File lockFile) {
+    synchronized (HELD) {
+      try {
+        ReSharperLock held = HELD.get(path(lockFile));
+        if (held != null) {
+          return read(held.file);
+        }
+        // Safe to open and close: this process holds no lock on the file
+        return lockFile.isFile() ? Files.toString(lockFile, Charsets.UTF_8).trim() : "";
+      } catch (IOException e) {
+        return "";
+      }
+    }
+  }
+
+  public File file() {
+    return lockFile;
+  }
+
+  public void release() {
+    synchronized (HELD) {
+      try {
+        file.setLength(0);
+        lock.release();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      } finally {
+        IOUtils.closeQuietly(file);
+        HELD.remove(path);
+      }
+    }
+  }
+
+  private static String path(File lockFile) throws IOException {
+    return lockFile.getCanonicalPath();
+  }
+
+  private static String read(RandomAccessFile file) throws IOException {
+    byte[] bytes = new byte[(int) file.length()];
+    file.seek(0);
+    file.readFully(bytes);
+    return new String(bytes, Charsets.UTF_8).trim();
+  }
+
+}
@@ -38,8 +38,23 @@ public class ReSharperPlugin extends SonarPlugin {
   public static final String SOLUTION_FILE_PROPERTY_KEY = "sonar.resharper.solutionFile";
   public static final String INSPECTCODE_PATH_PROPERTY_KEY = "sonar.resharper.inspectCodePath";
   public static final String TIMEOUT_MINUTES_PROPERTY_KEY = "sonar.resharper.timeoutMinutes";
+  public static final String STALL_TIMEOUT_MINUTES_PROPERTY_KEY = "sonar.resharper.stallTimeoutMinutes";
   public static final String CACHES_HOME_PROPERTY_KEY = "sonar.resharper.cacheshome";
+  public static final String CACHES_MAX_SIZE_MB_PROPERTY_KEY = "sonar.resharper.cacheshome.maxSizeMb";
+  public static final String CACHES_LOCK_TIMEOUT_MINUTES_PROPERTY_KEY = "sonar.resharper.cacheshome.lockTimeoutMinutes";
   public static final String PROFILE_PROPERTY_KEY = "sonar.resharper.profile";
+  public static final String PARSER_THREADS_PROPERTY_KEY = "sonar.resharper.parserThreads";
+  public static final String REPORT_SCANNER_PROPERTY_KEY = "sonar.resharper.reportScanner";
+  public static final String SHARDS_PROPERTY_KEY = "sonar.resharper.shards";
+  public static final String REUSE_REPORT_PROPERTY_KEY = "sonar.resharper.reuseReport";
+  public static final String CHANGED_FILES_PROPERTY_KEY = "sonar.resharper.changedFiles";
+  public static final String CHANGED_FILES_GIT_BASE_PROPERTY_KEY = "sonar.resharper.changedFiles.gitBase";
+  public static final String REPORT_PATH_PROPERTY_KEY = "sonar.resharper.reportPath";
+  public static final String ASYNC_PROPERTY_KEY = "sonar.resharper.async";
+  public static final String HISTORY_DIR_PROPERTY_KEY = "sonar.resharper.historyDir";
+  public static final String MAX_CONCURRENT_RUNS_PROPERTY_KEY = "sonar.resharper.maxConcurrentRuns";
+  public static final String MIN_FREE_MEMORY_MB_PROPERTY_KEY = "sonar.resharper.minFreeMemoryMb";
+  public static final String SLOTS_DIR_PROPERTY_KEY = "sonar.resharper.slotsDir";
   public static final String RULES_PROFILE_PROPERTY_KEY = "sonar.resharper.rulerepository";
   public static final String CUSTOM_SEVERITIES_DEFINITON_PROPERTY_KEY = "sonar.resharper.customSeverities.definition";
   public static final String CUSTOM_SEVERITIES_PATH_PROPERTY_KEY = "sonar.resharper.customSeverities.path";
@@ -60,6 +75,7 @@ public class ReSharperPlugin extends SonarPlugin {
 
     builder.addAll(CSharpReSharperProvider.extensions());
     builder.addAll(VBNetReSharperProvider.extensions());
+    builder.add(ReSharperSolutionRuns.class);
     builder.add(ReSharperProfileExporter.CSharpRegularReSharperProfileExporter.class);
     builder.add(ReSharperProfileExporter.VbNetRegularReSharperProfileExporter.class);
     builder.add(ReSharperProfileImporter.CSharpRegularReSharperProfileImporter.class);
@@ -97,12 +113,22 @@ public class ReSharperPlugin extends SonarPlugin {
 
       PropertyDefinition.builder(TIMEOUT_MINUTES_PROPERTY_KEY)
         .name("ReSharper execution timeout")
-        .description("Time in minutes after which ReSharper's execution should be interrupted if not finished")
+        .description("Time in minutes after which ReSharper's execution should be interrupted if not finished, 0 for no limit. "
+          + "When not set, the default is replaced by a timeout derived from the previous runs once there are enough of them")
         .defaultValue("60")
         .category(CATEGORY)
         .onQualifiers(Qualifiers.PROJECT)
         .type(PropertyType.INTEGER)
         .build(),
+      PropertyDefinition.builder(STALL_TIMEOUT_MINUTES_PROPERTY_KEY)
+        .name("ReSharper stall timeout")
+        .description("Time in minutes without any progress output after which ReSharper's execution is interrupted, 0 (the default) for no limit. "
+          + "InspectCode can be silent for long stretches, for example while loading or building large solutions: when enabled, use a value well above those")
+        .defaultValue("0")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
        PropertyDefinition.builder(CACHES_HOME_PROPERTY_KEY)
         .name("caches home")
         .description("inspectcode caches")
@@ -110,6 +136,23 @@ public class ReSharperPlugin extends SonarPlugin {
         .onQualifiers(Qualifiers.PROJECT)
         .type(PropertyType.STRING)
         .build(),
+        PropertyDefinition.builder(CACHES_MAX_SIZE_MB_PROPERTY_KEY)
+        .name("caches home size limit")
+        .description("Size in MB of the caches home above which the caches of the least recently analysed solutions are deleted, for example 10240. "
+          + "When set, each solution gets its own subdirectory of the caches home, so the existing caches are not reused. "
+          + "Empty or 0, the default, to pass the caches home as is to inspectcode")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
+        PropertyDefinition.builder(CACHES_LOCK_TIMEOUT_MINUTES_PROPERTY_KEY)
+        .name("caches home lock timeout")
+        .description("Time in minutes to wait for another build using the same caches home, after which a copy of the caches is used instead")
+        .defaultValue("10")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
         PropertyDefinition.builder(PROFILE_PROPERTY_KEY)
         .name("settings file to use by inspectcode")
         .description("inspectcode profile")
@@ -117,6 +160,98 @@ public class ReSharperPlugin extends SonarPlugin {
         .onQualifiers(Qualifiers.PROJECT)
         .type(PropertyType.STRING)
         .build(),
+        PropertyDefinition.builder(PARSER_THREADS_PROPERTY_KEY)
+        .name("Report parser threads")
+        .description("Number of threads parsing the projects of the ReSharper report concurrently, 0 to use one per available processor")
+        .defaultValue("1")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
+        PropertyDefinition.builder(REPORT_SCANNER_PROPERTY_KEY)
+        .name("Memory-mapped report scanner")
+        .description("Parse the ReSharper report by scanning its memory-mapped bytes instead of with StAX. "
+          + "The scanner is sequential: when enabled, " + PARSER_THREADS_PROPERTY_KEY + " is ignored")
+        .defaultValue("false")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .build(),
+        PropertyDefinition.builder(SHARDS_PROPERTY_KEY)
+        .name("InspectCode processes")
+        .description("Number of concurrent inspectcode processes the projects of the solution are split over, 0 to derive it from the available processors and memory")
+        .defaultValue("1")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
+        PropertyDefinition.builder(REUSE_REPORT_PROPERTY_KEY)
+        .name("Reuse unchanged report")
+        .description("Skip the execution of inspectcode and reuse the report of the previous run in the same working directory when the solution, its files, the settings and the command line did not change")
+        .defaultValue("false")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .build(),
+        PropertyDefinition.builder(CHANGED_FILES_PROPERTY_KEY)
+        .name("Changed files")
+        .description("Comma separated list of files, relative to the solution, to which the inspection is restricted. Example: MyLibrary/Class1.cs")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.STRING)
+        .build(),
+        PropertyDefinition.builder(CHANGED_FILES_GIT_BASE_PROPERTY_KEY)
+        .name("Changed files git base")
+        .description("Git revision against which the working tree of the solution is compared to restrict the inspection to the changed files. Example: origin/master")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.STRING)
+        .build(),
+        PropertyDefinition.builder(REPORT_PATH_PROPERTY_KEY)
+        .name("Report path")
+        .description("Path to a report produced by an earlier run of inspectcode, absolute or relative to the project base directory. When set, inspectcode is not run and this report is imported instead.")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.STRING)
+        .build(),
+        PropertyDefinition.builder(ASYNC_PROPERTY_KEY)
+        .name("Asynchronous execution")
+        .description("Start inspectcode before the sensors are executed, so that it runs while the other sensors do")
+        .defaultValue("false")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .build(),
+        PropertyDefinition.builder(HISTORY_DIR_PROPERTY_KEY)
+        .name("History directory")
+        .description("Directory where the durations of the previous inspectcode runs are kept, to predict the next ones and derive a timeout when none is set. Defaults to the working directory")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.STRING)
+        .build(),
+        PropertyDefinition.builder(MAX_CONCURRENT_RUNS_PROPERTY_KEY)
+        .name("Maximum concurrent inspectcode processes")
+        .description("Maximum number of inspectcode processes running at once on the agent, across all builds sharing the slots directory. 0 for no limit")
+        .defaultValue("0")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
+        PropertyDefinition.builder(MIN_FREE_MEMORY_MB_PROPERTY_KEY)
+        .name("Minimum free memory")
+        .description("Free physical memory in MB required to start inspectcode while other inspectcode processes are running. Only applies when the number of concurrent processes is limited. 0 for no check")
+        .defaultValue("0")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .build(),
+        PropertyDefinition.builder(SLOTS_DIR_PROPERTY_KEY)
+        .name("Slots directory")
+        .description("Directory shared by the builds of the agent to limit the number of concurrent inspectcode processes. Defaults to resharper-slots in the temporary directory")
+        .category(CATEGORY)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.STRING)
+        .build(),
         PropertyDefinition.builder(CUSTOM_SEVERITIES_PATH_PROPERTY_KEY)
         .name("file with custom severities")
         .description("Absolute path to file with exported ReSharper settings: RESHARPER, Manage Options...,Import/Export Settiings, Export to file,CodeInspection")
@@ -0,0 +1,141 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.utils.command.Command;
+import org.sonar.api.utils.command.CommandException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs InspectCode under a watchdog that kills it once it printed nothing for a given time,
+ * in addition to the overall timeout. {@link org.sonar.api.utils.command.CommandExecutor} only supports the latter.
+ */
+public class ReSharperProcess {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperProcess.class);
+  private static final long MAX_POLL_MILLIS = 1000;
+
+  private final long timeoutMillis;
+  private final long stallTimeoutMillis;
+
+  /**
+   * @param timeoutMillis overall timeout, not enforced if not positive
+   * @param stallTimeoutMillis time without output after which the process is killed, not enforced if not positive
+   */
+  public ReSharperProcess(long timeoutMillis, long stallTimeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+    this.stallTimeoutMillis = stallTimeoutMillis;
+  }
+
+  public int execute(Command command, ReSharperProgress progress) {
+    List<String> commandLine = Lists.newArrayList(command.getExecutable());
+    commandLine.addAll(command.getArguments());
+    ProcessBuilder builder = new ProcessBuilder(commandLine);
+    if (command.getDirectory() != null) {
+      builder.directory(command.getDirectory());
+    }
+    builder.environment().putAll(command.getEnvironmentVariables());
+
+    LOG.info("Executing command: " + command.toCommandLine());
+    Process process;
+    try {
+      process = builder.start();
+    } catch (IOException e) {
+      throw new CommandException(command, e);
+    }
+    progress.started();
+
+    Thread outputConsumer = consume(process.getInputStream(), progress, false);
+    Thread errorConsumer = consume(process.getErrorStream(), progress, true);
+    try {
+      int exitCode = watch(command, process, progress);
+      outputConsumer.join();
+      errorConsumer.join();
+      return exitCode;
+    } catch (InterruptedException e) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+      throw new ReSharperException("Interrupted while waiting for InspectCode");
+    } finally {
+      IOUtils.closeQuietly(process.getOutputStream());
+    }
+  }
+
+  private int watch(Command command, Process process, ReSharperProgress progress) throws InterruptedException {
+    long start = System.nanoTime();
+    long pollMillis = stallTimeoutMillis > 0 ? Math.min(MAX_POLL_MILLIS, Math.max(1, stallTimeoutMillis / 4)) : MAX_POLL_MILLIS;
+    while (true) {
+      try {
+        return process.exitValue();
+      } catch (IllegalThreadStateException e) {
+        // still running
+      }
+
+      if (timeoutMillis > 0 && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > timeoutMillis) {
+        process.destroy();
+        throw new CommandException(command, "Timeout exceeded: " + timeoutMillis + " ms", null);
+      }
+      if (stallTimeoutMillis > 0 && progress.millisSinceLastOutput() > stallTimeoutMillis) {
+        process.destroy();
+        throw new CommandException(command, "No progress for " + stallTimeoutMillis + " ms after " + progress.files() + " files inspected in "
+          + progress.projects() + " projects, InspectCode was killed", null);
+      }
+      Thread.sleep(pollMillis);
+    }
+  }
+
+  private static Thread consume(final InputStream in, final ReSharperProgress progress, final boolean error) {
+    Thread thread = new Thread("resharper-inspectcode-" + (error ? "stderr" : "stdout")) {
+      @Override
+      public void run() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        try {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            if (error) {
+              LOG.error(line);
+            } else {
+              LOG.info(line);
+            }
+            progress.output(line);
+          }
+        } catch (IOException e) {
+          LOG.debug("Stopped reading the output of InspectCode", e);
+        } finally {
+          IOUtils.closeQuietly(reader);
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the output of InspectCode, which prints a line per inspected file ("Inspecting &lt;path&gt;").
+ * Projects are counted as the distinct top-level directories of the inspected files below the solution directory.
+ * Each process of a sharded run follows its own progress, so that a hung process is noticed while the others still print,
+ * and counts into the progress of the whole run.
+ */
+public class ReSharperProgress {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperProgress.class);
+  private static final String INSPECTING = "Inspecting ";
+  private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final String solutionDir;
+  private final ReSharperRunProfile runProfile;
+  private final ReSharperProgress total;
+  private final Set<String> projects = Sets.newHashSet();
+  private int files;
+  private long lastOutputNanos;
+  private long lastLogNanos;
+
+  public ReSharperProgress(@Nullable File solution, @Nullable ReSharperRunProfile runProfile) {
+    this.solutionDir = solution == null || solution.getParentFile() == null ? "" : normalize(solution.getAbsoluteFile().getParent()) + "/";
+    this.runProfile = runProfile;
+    this.total = null;
+    this.lastOutputNanos = System.nanoTime();
+    this.lastLogNanos = lastOutputNanos;
+  }
+
+  /**
+   * Progress of one of the processes of a sharded run, counting into the given progress of the whole run.
+   */
+  public ReSharperProgress(ReSharperProgress total) {
+    this.solutionDir = total.solutionDir;
+    this.runProfile = null;
+    this.total = total;
+    this.lastOutputNanos = System.nanoTime();
+    this.lastLogNanos = lastOutputNanos;
+  }
+
+  /**
+   * Restarts the clock of {@link #millisSinceLastOutput()} once the process is started, as waiting for a slot is not stalling.
+   */
+  public synchronized void started() {
+    lastOutputNanos = System.nanoTime();
+  }
+
+  public synchronized void output(String line) {
+    lastOutputNanos = System.nanoTime();
+    if (total != null) {
+      total.output(line);
+      return;
+    }
+
+    String trimmed = line.trim();
+    if (!trimmed.startsWith(INSPECTING)) {
+      return;
+    }
+
+    files++;
+    String project = project(normalize(trimmed.substring(INSPECTING.length())));
+    if (project != null) {
+      projects.add(project);
+    }
+    if (runProfile != null) {
+      runProfile.set("inspectCodeFiles", files);
+      runProfile.set("inspectCodeProjects", projects.size());
+    }
+    if (lastOutputNanos - lastLogNanos >= LOG_INTERVAL_NANOS) {
+      lastLogNanos = lastOutputNanos;
+      LOG.info("InspectCode progress: " + files + " files inspected in " + projects.size() + " projects");
+    }
+  }
+
+  @Nullable
+  private String project(String path) {
+    String relativePath = path;
+    if (relativePath.startsWith(solutionDir)) {
+      relativePath = relativePath.substring(solutionDir.length());
+    }
+    int slash = relativePath.indexOf('/');
+    return slash > 0 ? relativePath.substring(0, slash) : null;
+  }
+
+  private static String normalize(String path) {
+    return path.replace('\\', '/').toLowerCase();
+  }
+
+  public synchronized int files() {
+    return total != null ? total.files() : files;
+  }
+
+  public synchronized int projects() {
+    return total != null ? total.projects() : projects.size();
+  }
+
+  /**
+   * Time elapsed since InspectCode last printed anything.
+   */
+  public synchronized long millisSinceLastOutput() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastOutputNanos);
+  }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges the reports of several InspectCode executions into one report: the union of their &lt;IssueType&gt;
+ * elements followed by all their &lt;Project&gt; elements, in the order of the given reports.
+ */
+public class ReSharperReportMerger {
+
+  private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+  private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+  public void merge(List<File> reports, File output) {
+    Writer writer = null;
+    XMLStreamWriter xmlWriter = null;
+    try {
+      writer = new OutputStreamWriter(new FileOutputStream(output), Charsets.UTF_8);
+      xmlWriter = outputFactory.createXMLStreamWriter(writer);
+      xmlWriter.writeStartDocument("utf-8", "1.0");
+      xmlWriter.writeCharacters("\n");
+      xmlWriter.writeStartElement("Report");
+      xmlWriter.writeCharacters("\n");
+
+      xmlWriter.writeStartElement("IssueTypes");
+      xmlWriter.writeCharacters("\n");
+      Set<String> issueTypeIds = Sets.newHashSet();
+      for (File report : reports) {
+        copy(report, "IssueType", issueTypeIds, xmlWriter);
+      }
+      xmlWriter.writeEndElement();
+      xmlWriter.writeCharacters("\n");
+
+      xmlWriter.writeStartElement("Issues");
+      xmlWriter.writeCharacters("\n");
+      for (File report : reports) {
+        copy(report, "Project", null, xmlWriter);
+      }
+      xmlWriter.writeEndElement();
+      xmlWriter.writeCharacters("\n");
+
+      xmlWriter.writeEndElement();
+      xmlWriter.writeEndDocument();
+      xmlWriter.flush();
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } catch (XMLStreamException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      closeQuietly(xmlWriter);
+      Closeables.closeQuietly(writer);
+    }
+  }
+
+  /**
+   * Copies the elements of the report with the given name, along with their children. When ids are given, only
+   * the elements whose "Id" attribute was not copied before are.
+   */
+  private void copy(File report, String elementName, Set<String> ids, XMLStreamWriter xmlWriter) throws IOException, XMLStreamException {
+    Reader reader = null;
+    XMLStreamReader stream = null;
+    try {
+      reader = new InputStreamReader(new FileInputStream(report), Charsets.UTF_8);
+      stream = inputFactory.createXMLStreamReader(reader);
+
+      int depth = 0;
+      while (stream.hasNext()) {
+        int event = stream.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          if (depth == 0 && elementName.equals(stream.getLocalName()) && (ids == null || ids.add(stream.getAttributeValue(null, "Id")))) {
+            depth = 1;
+            writeStartElement(stream, xmlWriter);
+          } else if (depth > 0) {
+            depth++;
+            writeStartElement(stream, xmlWriter);
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && depth > 0) {
+          depth--;
+          xmlWriter.writeEndElement();
+          xmlWriter.writeCharacters("\n");
+        }
+      }
+    } finally {
+      closeQuietly(stream);
+      Closeables.closeQuietly(reader);
+    }
+  }
+
+  private static void writeStartElement(XMLStreamReader stream, XMLStreamWriter xmlWriter) throws XMLStreamException {
+    xmlWriter.writeStartElement(stream.getLocalName());
+    for (int i = 0; i < stream.getAttributeCount(); i++) {
+      xmlWriter.writeAttribute(stream.getAttributeLocalName(i), stream.getAttributeValue(i));
+    }
+  }
+
+  private static void closeQuietly(XMLStreamReader stream) {
+    if (stream != null) {
+      try {
+        stream.close();
+      } catch (XMLStreamException e) {
+        // Ignored
+      }
+    }
+  }
+
+  private static void closeQuietly(XMLStreamWriter xmlWriter) {
+    if (xmlWriter != null) {
+      try {
+        xmlWriter.close();
+      } catch (XMLStreamException e) {
+        // Ignored
+      }
+    }
+  }
+
+}
@@ -22,7 +22,10 @@ package org.sonar.plugins.resharper;
 import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.xml.stream.XMLInputFactory;
@@ -30,32 +33,289 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ReSharperReportParser {
 
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperReportParser.class);
+
+  private final int threads;
+  private final boolean scanner;
+
+  public ReSharperReportParser() {
+    this(1);
+  }
+
+  /**
+   * @param threads number of threads parsing the &lt;Project&gt; blocks of the report concurrently, 1 to parse it sequentially
+   */
+  public ReSharperReportParser(int threads) {
+    this(threads, false);
+  }
+
+  /**
+   * @param threads number of threads parsing the &lt;Project&gt; blocks of the report concurrently, 1 to parse it sequentially
+   * @param scanner whether to parse the report with {@link ReSharperReportScanner}, which is sequential and ignores the threads
+   */
+  public ReSharperReportParser(int threads, boolean scanner) {
+    this.threads = threads;
+    this.scanner = scanner;
+  }
+
   public List<ReSharperIssue> parse(File file) {
-    return new Parser().parse(file);
+    final ImmutableList.Builder<ReSharperIssue> issuesBuilder = ImmutableList.builder();
+    parse(file, new ReSharperIssueHandler() {
+      @Override
+      public void handle(ReSharperIssue issue) {
+        issuesBuilder.add(issue);
+      }
+    });
+    return issuesBuilder.build();
+  }
+
+  /**
+   * Streams the issues of the report to the given handler as they are read, without keeping them in memory.
+   * In parallel mode, the handler is still called from the calling thread and in report order.
+   */
+  public void parse(File file, ReSharperIssueHandler handler) {
+    parse(file, ReSharperIssueFilter.ALL, handler);
+  }
+
+  /**
+   * Same as {@link #parse(File, ReSharperIssueHandler)}, for the issues accepted by the filter only, which is checked
+   * before the other attributes are read. In parallel mode, the filter is called from the parser threads.
+   */
+  public void parse(File file, ReSharperIssueFilter filter, ReSharperIssueHandler handler) {
+    parse(file, filter, issueObjects(handler));
+  }
+
+  /**
+   * Same as {@link #parse(File, ReSharperIssueFilter, ReSharperIssueHandler)}, handing over the attribute values of the
+   * issues instead of allocating an issue object for each.
+   */
+  public void parse(File file, ReSharperIssueFilter filter, ReSharperRawIssueHandler handler) {
+    if (scanner) {
+      new ReSharperReportScanner().parse(file, filter, handler);
+      return;
+    }
+
+    if (threads > 1) {
+      List<Segment> segments = ProjectScanner.scan(file);
+      if (segments.size() > 1) {
+        parseInParallel(file, segments, filter, handler);
+        return;
+      }
+    }
+
+    InputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      new Parser(filter, handler).parse(file, in, 1);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  private void parseInParallel(final File file, List<Segment> segments, final ReSharperIssueFilter filter, ReSharperRawIssueHandler handler) {
+    LOG.debug("Parsing the " + segments.size() + " projects of " + file.getAbsolutePath() + " with " + threads + " threads");
+
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      // Only a window of segments is parsed ahead of the one being handled, to bound the memory use
+      LinkedList<Future<ReSharperIssueStore>> window = Lists.newLinkedList();
+      int next = 0;
+      while (next < segments.size() || !window.isEmpty()) {
+        while (next < segments.size() && window.size() < 2 * threads) {
+          final Segment segment = segments.get(next++);
+          window.add(executorService.submit(new Callable<ReSharperIssueStore>() {
+            @Override
+            public ReSharperIssueStore call() {
+              return parseSegment(file, segment, filter);
+            }
+          }));
+        }
+
+        window.removeFirst().get().replay(handler);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  private static ReSharperIssueStore parseSegment(File file, Segment segment, ReSharperIssueFilter filter) {
+    byte[] bytes = new byte[(int) (segment.end - segment.start)];
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "r");
+      randomAccessFile.seek(segment.start);
+      randomAccessFile.readFully(bytes);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      Closeables.closeQuietly(randomAccessFile);
+    }
+
+    // The <Project> blocks of a segment are wrapped in a root element, without adding any line
+    InputStream in = new SequenceInputStream(
+      new ByteArrayInputStream("<Issues>".getBytes(Charsets.UTF_8)),
+      new SequenceInputStream(new ByteArrayInputStream(bytes), new ByteArrayInputStream("</Issues>".getBytes(Charsets.UTF_8))));
+
+    ReSharperIssueStore issues = new ReSharperIssueStore();
+    new Parser(filter, issues).parse(file, in, segment.line);
+    return issues;
+  }
+
+  /**
+   * Parses a single &lt;Issue&gt; element starting at the given line, for the values {@link ReSharperReportScanner} does not decode.
+   */
+  static void parseElement(File file, byte[] element, int line, ReSharperIssueFilter filter, ReSharperRawIssueHandler handler) {
+    new Parser(filter, handler).parse(file, new ByteArrayInputStream(element), line);
+  }
+
+  /**
+   * Allocates an issue object per issue for the given handler.
+   */
+  static ReSharperRawIssueHandler issueObjects(final ReSharperIssueHandler handler) {
+    return new ReSharperRawIssueHandler() {
+      @Override
+      public void handle(int reportLine, String typeId, @Nullable String filePath, int line, int offset, String message) {
+        handler.handle(new ReSharperIssue(reportLine, typeId, filePath, line == NONE ? null : line, offset == NONE ? null : offset, message));
+      }
+    };
+  }
+
+  /**
+   * Byte range of the report holding one or more consecutive &lt;Project&gt; blocks, starting at the given line.
+   */
+  private static class Segment {
+
+    private final long start;
+    private final long end;
+    private final int line;
+
+    public Segment(long start, long end, int line) {
+      this.start = start;
+      this.end = end;
+      this.line = line;
+    }
+
+  }
+
+  /**
+   * Finds the byte offsets of the &lt;Project&gt; elements of a report without parsing it.
+   * A '&lt;' cannot appear unescaped in attribute values or text, so matching the tags on raw bytes is safe.
+   */
+  private static class ProjectScanner {
+
+    private static final byte[] PROJECT_START = "<Project".getBytes(Charsets.UTF_8);
+    private static final byte[] ISSUES_END = "</Issues>".getBytes(Charsets.UTF_8);
+
+    private ProjectScanner() {
+    }
+
+    public static List<Segment> scan(File file) {
+      List<Segment> segments = Lists.newArrayList();
+
+      InputStream in = null;
+      try {
+        in = new BufferedInputStream(new FileInputStream(file), 64 * 1024);
+        long offset = 0;
+        int line = 1;
+        long segmentStart = -1;
+        int segmentLine = 0;
+        int projectMatched = 0;
+        int issuesEndMatched = 0;
+
+        int b;
+        while ((b = in.read()) != -1) {
+          if (b == '\n') {
+            line++;
+          }
+          projectMatched = match(b, PROJECT_START, projectMatched);
+          issuesEndMatched = match(b, ISSUES_END, issuesEndMatched);
+
+          if (projectMatched == PROJECT_START.length) {
+            long start = offset - PROJECT_START.length + 1;
+            if (segmentStart != -1) {
+              segments.add(new Segment(segmentStart, start, segmentLine));
+            }
+            segmentStart = start;
+            segmentLine = line;
+            projectMatched = 0;
+          } else if (issuesEndMatched == ISSUES_END.length) {
+            if (segmentStart != -1) {
+              segments.add(new Segment(segmentStart, offset - ISSUES_END.length + 1, segmentLine));
+              segmentStart = -1;
+            }
+            issuesEndMatched = 0;
+          }
+          offset++;
+        }
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+
+      return segments;
+    }
+
+    /**
+     * Both tags start with their only '&lt;', so on a mismatch the match can only restart on that character.
+     */
+    private static int match(int b, byte[] pattern, int matched) {
+      if (b == pattern[matched]) {
+        return matched + 1;
+      }
+      return b == pattern[0] ? 1 : 0;
+    }
+
   }
 
   private static class Parser {
 
+    private final ReSharperIssueFilter filter;
+    private final ReSharperRawIssueHandler handler;
     private File file;
+    private int firstLine;
     private XMLStreamReader stream;
-    private final ImmutableList.Builder<ReSharperIssue> filesBuilder = ImmutableList.builder();
 
-    public List<ReSharperIssue> parse(File file) {
+    public Parser(ReSharperIssueFilter filter, ReSharperRawIssueHandler handler) {
+      this.filter = filter;
+      this.handler = handler;
+    }
+
+    public void parse(File file, InputStream in, int firstLine) {
       this.file = file;
+      this.firstLine = firstLine;
 
       InputStreamReader reader = null;
       XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
 
       try {
-        reader = new InputStreamReader(new FileInputStream(file), Charsets.UTF_8);
+        reader = new InputStreamReader(in, Charsets.UTF_8);
         stream = xmlFactory.createXMLStreamReader(reader);
 
         while (stream.hasNext()) {
@@ -67,16 +327,12 @@ public class ReSharperReportParser {
             }
           }
         }
-      } catch (IOException e) {
-        throw Throwables.propagate(e);
       } catch (XMLStreamException e) {
         throw Throwables.propagate(e);
       } finally {
         closeXmlStream();
         Closeables.closeQuietly(reader);
       }
-
-      return filesBuilder.build();
     }
 
     private void closeXmlStream() {
@@ -92,9 +348,13 @@ public class ReSharperReportParser {
     private void handleIssueTag() throws XMLStreamException {
       String typeId = getRequiredAttribute("TypeId");
       String filePath = getAttribute("File");
-      Integer line = getIntAttribute("Line");
+      if (!filter.accept(typeId, filePath)) {
+        return;
+      }
+      int line = getIntAttribute("Line");
+      int offset = getOffsetAttribute();
       String message = getRequiredAttribute("Message");
-      filesBuilder.add(new ReSharperIssue(stream.getLocation().getLineNumber(), typeId, filePath, line, message));
+      handler.handle(lineNumber(), typeId, filePath, line, offset, message);
     }
 
     private String getRequiredAttribute(String name) {
@@ -106,12 +366,11 @@ public class ReSharperReportParser {
       return value;
     }
 
-    @Nullable
-    private Integer getIntAttribute(String name) {
+    private int getIntAttribute(String name) {
       String value = getAttribute(name);
 
       if (value == null) {
-        return null;
+        return ReSharperRawIssueHandler.NONE;
       }
 
       try {
@@ -121,6 +380,24 @@ public class ReSharperReportParser {
       }
     }
 
+    /**
+     * Start of the "start-end" range of the Offset attribute.
+     */
+    private int getOffsetAttribute() {
+      String value = getAttribute("Offset");
+
+      if (value == null) {
+        return ReSharperRawIssueHandler.NONE;
+      }
+
+      int dash = value.indexOf('-');
+      try {
+        return Integer.parseInt(dash == -1 ? value : value.substring(0, dash));
+      } catch (NumberFormatException e) {
+        throw parseError("Expected an offset range instead of \"" + value + "\" for the attribute \"Offset\"");
+      }
+    }
+
     @Nullable
     private String getAttribute(String name) {
       for (int i = 0; i < stream.getAttributeCount(); i++) {
@@ -132,13 +409,17 @@ public class ReSharperReportParser {
       return null;
     }
 
+    private int lineNumber() {
+      return firstLine + stream.getLocation().getLineNumber() - 1;
+    }
+
     private ParseErrorException parseError(String message) {
-      return new ParseErrorException(message + " in " + file.getAbsolutePath() + " at line " + stream.getLocation().getLineNumber());
+      return new ParseErrorException(message + " in " + file.getAbsolutePath() + " at line " + lineNumber());
     }
 
   }
 
-  private static class ParseErrorException extends RuntimeException {
+  static class ParseErrorException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
 
@@ -0,0 +1,496 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.io.Closeables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Parser specialized for the fixed shape of InspectCode reports: it scans the bytes of the memory-mapped report for
+ * &lt;Issue&gt; elements and decodes their attributes straight from the byte ranges of the values, without any XML event
+ * or intermediate string. The predefined entities are unescaped in place, and the rare issues with a character reference
+ * or a value to normalize are parsed with StAX instead.
+ * A '&lt;' cannot appear unescaped in attribute values or text, so matching the tags on raw bytes is safe.
+ * The scan is sequential: it is opt-in, and the parser threads are ignored when it is used.
+ */
+public class ReSharperReportScanner {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperReportScanner.class);
+
+  private static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+  private static final byte[] ISSUE_START = bytes("<Issue");
+  private static final byte[] ISSUE_END = bytes("</Issue>");
+  private static final byte[] TYPE_ID = bytes("TypeId");
+  private static final byte[] FILE = bytes("File");
+  private static final byte[] LINE = bytes("Line");
+  private static final byte[] OFFSET = bytes("Offset");
+  private static final byte[] MESSAGE = bytes("Message");
+  private static final byte[][] PREDEFINED_ENTITIES = {bytes("lt"), bytes("gt"), bytes("amp"), bytes("quot"), bytes("apos")};
+  private static final byte[] PREDEFINED_CHARACTERS = bytes("<>&\"'");
+
+  private final int windowBytes;
+
+  public ReSharperReportScanner() {
+    this(DEFAULT_WINDOW_BYTES);
+  }
+
+  /**
+   * @param windowBytes size of the regions of the report mapped one after the other, which bounds the size of an element
+   */
+  @VisibleForTesting
+  ReSharperReportScanner(int windowBytes) {
+    this.windowBytes = windowBytes;
+  }
+
+  public void parse(File file, ReSharperIssueHandler handler) {
+    parse(file, ReSharperIssueFilter.ALL, handler);
+  }
+
+  /**
+   * Handles the issues accepted by the filter only, which is checked before the other attributes are decoded.
+   */
+  public void parse(File file, ReSharperIssueFilter filter, ReSharperIssueHandler handler) {
+    parse(file, filter, ReSharperReportParser.issueObjects(handler));
+  }
+
+  /**
+   * Same as {@link #parse(File, ReSharperIssueFilter, ReSharperIssueHandler)}, handing over the decoded attribute values
+   * of the issues instead of allocating an issue object for each.
+   */
+  public void parse(File file, ReSharperIssueFilter filter, ReSharperRawIssueHandler handler) {
+    RandomAccessFile randomAccessFile = null;
+    try {
+      randomAccessFile = new RandomAccessFile(file, "r");
+      FileChannel channel = randomAccessFile.getChannel();
+      long size = channel.size();
+      Scan scan = new Scan(file, filter, handler);
+
+      long position = 0;
+      while (position < size) {
+        long length = Math.min(size - position, windowBytes);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int scanned;
+        try {
+          scanned = scan.scan(buffer, position + length == size);
+        } finally {
+          unmap(buffer);
+        }
+        if (scanned == 0) {
+          throw scan.parseError("Element <Issue> larger than " + windowBytes + " bytes");
+        }
+        position += scanned;
+      }
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      Closeables.closeQuietly(randomAccessFile);
+    }
+  }
+
+  /**
+   * Without it, the mapping is only released when the buffer is garbage collected, and until then the file cannot be
+   * overwritten on Windows, for instance the report by the next InspectCode run.
+   */
+  static void unmap(MappedByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      LOG.debug("Unable to unmap the ReSharper report, it will be once garbage collected", e);
+    }
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(Charsets.UTF_8);
+  }
+
+  private static class Scan {
+
+    private final File file;
+    private final ReSharperIssueFilter filter;
+    private final ReSharperRawIssueHandler handler;
+    private int line = 1;
+    private byte[] scratch = new byte[256];
+
+    private MappedByteBuffer buffer;
+    private int limit;
+    private int typeIdStart;
+    private int typeIdEnd;
+    private int fileStart;
+    private int fileEnd;
+    private int lineStart;
+    private int lineEnd;
+    private int offsetStart;
+    private int offsetEnd;
+    private int messageStart;
+    private int messageEnd;
+    private boolean entities;
+    private boolean needsStax;
+
+    public Scan(File file, ReSharperIssueFilter filter, ReSharperRawIssueHandler handler) {
+      this.file = file;
+      this.filter = filter;
+      this.handler = handler;
+    }
+
+    /**
+     * Handles the issues of the window, and returns the number of bytes scanned: the window ends before the first
+     * element it truncates, which is scanned again from the start of the next window.
+     */
+    public int scan(MappedByteBuffer buffer, boolean last) {
+      this.buffer = buffer;
+      this.limit = buffer.limit();
+
+      int i = 0;
+      while (i < limit) {
+        byte b = buffer.get(i);
+        if (b == '\n') {
+          line++;
+        } else if (b == '<') {
+          if (i + ISSUE_START.length >= limit && !last) {
+            return i;
+          }
+          if (isIssueStart(i)) {
+            int elementLine = line;
+            int end = element(i);
+            if (end == -1) {
+              line = elementLine;
+              if (last) {
+                throw parseError("Unexpected end of file in element <Issue>");
+              }
+              return i;
+            }
+            handleIssue(i, end, elementLine);
+            i = end;
+            continue;
+          }
+        }
+        i++;
+      }
+      return limit;
+    }
+
+    private boolean isIssueStart(int i) {
+      if (i + ISSUE_START.length >= limit) {
+        return false;
+      }
+      return matches(i, i + ISSUE_START.length, ISSUE_START) && isWhitespace(buffer.get(i + ISSUE_START.length));
+    }
+
+    /**
+     * Records the value ranges of the attributes of the element starting at the given index, and returns the index
+     * following it, or -1 if it is truncated.
+     */
+    private int element(int start) {
+      typeIdStart = -1;
+      fileStart = -1;
+      lineStart = -1;
+      offsetStart = -1;
+      messageStart = -1;
+      entities = false;
+      needsStax = false;
+
+      int i = start + ISSUE_START.length;
+      while (true) {
+        i = skipWhitespace(i);
+        if (i >= limit) {
+          return -1;
+        }
+        byte b = buffer.get(i);
+        if (b == '>') {
+          return i + 1;
+        } else if (b == '/') {
+          return i + 1 < limit ? i + 2 : -1;
+        }
+
+        int nameStart = i;
+        while (i < limit && buffer.get(i) != '=' && !isWhitespace(buffer.get(i))) {
+          i++;
+        }
+        int nameEnd = i;
+        i = skipWhitespace(i);
+        if (i >= limit) {
+          return -1;
+        } else if (buffer.get(i) != '=') {
+          throw parseError("Malformed attribute in element <Issue>");
+        }
+        i = skipWhitespace(i + 1);
+        if (i >= limit) {
+          return -1;
+        }
+        byte quote = buffer.get(i);
+        if (quote != '"' && quote != '\'') {
+          throw parseError("Malformed attribute in element <Issue>");
+        }
+
+        int valueStart = ++i;
+        i = valueEnd(i, quote);
+        if (i >= limit) {
+          return -1;
+        }
+        attribute(nameStart, nameEnd, valueStart, i);
+        i++;
+      }
+    }
+
+    /**
+     * Most of the report is made of attribute values, so this loop is kept minimal: all the bytes it checks for are
+     * ASCII characters up to the apostrophe, which leaves letters and UTF-8 multi-byte sequences to a single comparison.
+     */
+    private int valueEnd(int start, byte quote) {
+      MappedByteBuffer bytes = buffer;
+      int end = limit;
+      int i = start;
+      for (; i < end; i++) {
+        byte b = bytes.get(i);
+        if (b <= '\'' && b >= 0) {
+          if (b == quote) {
+            break;
+          } else if (b == '&') {
+            entities = true;
+          } else if (b == '\t' || b == '\r' || b == '\n') {
+            // Whitespace normalization is left to StAX
+            needsStax = true;
+            if (b == '\n') {
+              line++;
+            }
+          }
+        }
+      }
+      return i;
+    }
+
+    private void attribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+      if (matches(nameStart, nameEnd, TYPE_ID)) {
+        typeIdStart = valueStart;
+        typeIdEnd = valueEnd;
+      } else if (matches(nameStart, nameEnd, FILE)) {
+        fileStart = valueStart;
+        fileEnd = valueEnd;
+      } else if (matches(nameStart, nameEnd, LINE)) {
+        lineStart = valueStart;
+        lineEnd = valueEnd;
+      } else if (matches(nameStart, nameEnd, OFFSET)) {
+        offsetStart = valueStart;
+        offsetEnd = valueEnd;
+      } else if (matches(nameStart, nameEnd, MESSAGE)) {
+        messageStart = valueStart;
+        messageEnd = valueEnd;
+      }
+    }
+
+    private void handleIssue(int start, int end, int elementLine) {
+      if (!needsStax) {
+        if (typeIdStart == -1) {
+          throw missingAttribute("TypeId");
+        } else if (messageStart == -1) {
+          throw missingAttribute("Message");
+        }
+        String typeId = decode(typeIdStart, typeIdEnd);
+        String filePath = fileStart == -1 ? null : decode(fileStart, fileEnd);
+        if (!needsStax && !filter.accept(typeId, filePath)) {
+          return;
+        }
+        int issueLine = lineStart == -1 ? ReSharperRawIssueHandler.NONE : decodeInt(lineStart, lineEnd);
+        int offset = offsetStart == -1 ? ReSharperRawIssueHandler.NONE : decodeOffset(offsetStart, offsetEnd);
+        String message = decode(messageStart, messageEnd);
+        if (!needsStax) {
+          handler.handle(elementLine, typeId, filePath, issueLine, offset, message);
+          return;
+        }
+      }
+
+      ReSharperReportParser.parseElement(file, elementBytes(start, end), elementLine, filter, handler);
+    }
+
+    private byte[] elementBytes(int start, int end) {
+      boolean selfClosing = buffer.get(end - 2) == '/';
+      byte[] element = new byte[end - start + (selfClosing ? 0 : ISSUE_END.length)];
+      for (int i = start; i < end; i++) {
+        element[i - start] = buffer.get(i);
+      }
+      if (!selfClosing) {
+        System.arraycopy(ISSUE_END, 0, element, end - start, ISSUE_END.length);
+      }
+      return element;
+    }
+
+    /**
+     * Unescapes the predefined entities, and flags the value for StAX if it has any other reference.
+     */
+    private String decode(int start, int end) {
+      int length = end - start;
+      if (scratch.length < length) {
+        scratch = new byte[Math.max(length, 2 * scratch.length)];
+      }
+      buffer.position(start);
+      buffer.get(scratch, 0, length);
+      if (entities) {
+        length = unescape(length);
+      }
+      return new String(scratch, 0, length, Charsets.UTF_8);
+    }
+
+    private int unescape(int length) {
+      int written = 0;
+      for (int i = 0; i < length; i++) {
+        byte b = scratch[i];
+        if (b == '&') {
+          int semicolon = i + 1;
+          while (semicolon < length && scratch[semicolon] != ';') {
+            semicolon++;
+          }
+          b = semicolon < length ? predefinedEntity(i + 1, semicolon) : 0;
+          if (b == 0) {
+            needsStax = true;
+            return length;
+          }
+          i = semicolon;
+        }
+        scratch[written++] = b;
+      }
+      return written;
+    }
+
+    private byte predefinedEntity(int start, int end) {
+      for (int i = 0; i < PREDEFINED_ENTITIES.length; i++) {
+        byte[] entity = PREDEFINED_ENTITIES[i];
+        int j = 0;
+        while (j < entity.length && start + j < end && scratch[start + j] == entity[j]) {
+          j++;
+        }
+        if (j == entity.length && start + j == end) {
+          return PREDEFINED_CHARACTERS[i];
+        }
+      }
+      return 0;
+    }
+
+    private int decodeInt(int start, int end) {
+      // Up to 9 digits cannot overflow
+      if (end > start && end - start <= 9) {
+        int value = 0;
+        int i = start;
+        for (; i < end; i++) {
+          byte b = buffer.get(i);
+          if (b < '0' || b > '9') {
+            break;
+          }
+          value = 10 * value + b - '0';
+        }
+        if (i == end) {
+          return value;
+        }
+      }
+
+      String value = decode(start, end);
+      try {
+        return Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        throw parseError("Expected an integer instead of \"" + value + "\" for the attribute \"Line\"");
+      }
+    }
+
+    /**
+     * Start of the "start-end" range of the Offset attribute.
+     */
+    private int decodeOffset(int start, int end) {
+      int dash = start;
+      while (dash < end && buffer.get(dash) != '-') {
+        dash++;
+      }
+      if (dash - start <= 9) {
+        int value = 0;
+        int i = start;
+        for (; i < dash; i++) {
+          byte b = buffer.get(i);
+          if (b < '0' || b > '9') {
+            break;
+          }
+          value = 10 * value + b - '0';
+        }
+        if (i == dash && dash > start) {
+          return value;
+        }
+      }
+
+      // Anything else Integer.parseInt accepts, as the StAX parser does
+      String value = decode(start, end);
+      int valueDash = value.indexOf('-');
+      try {
+        return Integer.parseInt(valueDash == -1 ? value : value.substring(0, valueDash));
+      } catch (NumberFormatException e) {
+        throw parseError("Expected an offset range instead of \"" + value + "\" for the attribute \"Offset\"");
+      }
+    }
+
+    private int skipWhitespace(int start) {
+      int i = start;
+      while (i < limit && isWhitespace(buffer.get(i))) {
+        if (buffer.get(i) == '\n') {
+          line++;
+        }
+        i++;
+      }
+      return i;
+    }
+
+    private boolean matches(int start, int end, byte[] expected) {
+      if (end - start != expected.length) {
+        return false;
+      }
+      for (int i = 0; i < expected.length; i++) {
+        if (buffer.get(start + i) != expected[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+      return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private RuntimeException missingAttribute(String name) {
+      return parseError("Missing attribute \"" + name + "\" in element <Issue>");
+    }
+
+    public RuntimeException parseError(String message) {
+      return new ReSharperReportParser.ParseErrorException(message + " in " + file.getAbsolutePath() + " at line " + line);
+    }
+
+  }
+
+}
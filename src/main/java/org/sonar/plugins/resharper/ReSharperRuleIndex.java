@@ -0,0 +1,148 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.plugins.resharper.ReSharperRule.ReSharperSeverity;
+
+import javax.annotation.Nullable;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the active ReSharper rules of a repository, built once per analysis.
+ * Resolves the TypeId of a reported issue to its rule key with a hash lookup in immutable maps, which the report
+ * parser threads read without locking, and gives the severities InspectCode is configured with.
+ */
+public class ReSharperRuleIndex {
+
+  private static List<String> catalogTypeIds;
+
+  private final Map<String, RuleKey> ruleKeysByKey;
+  private final Map<String, RuleKey> ruleKeysByTypeId;
+  private final Map<String, ReSharperSeverity> activeSeverities = Maps.newLinkedHashMap();
+
+  public ReSharperRuleIndex(String repositoryKey, RulesProfile profile) {
+    Map<String, RuleKey> ruleKeysByKey = Maps.newHashMap();
+    Map<String, RuleKey> ruleKeysByTypeId = Maps.newHashMap();
+    for (ActiveRule activeRule : profile.getActiveRulesByRepository(repositoryKey)) {
+      String key = activeRule.getRuleKey();
+      RuleKey ruleKey = RuleKey.of(repositoryKey, key);
+      ruleKeysByKey.put(key, ruleKey);
+
+      // The rule name is the ReSharper TypeId, of which the key is the canonical form
+      Rule rule = activeRule.getRule();
+      if (rule != null && rule.getName() != null) {
+        ruleKeysByTypeId.put(rule.getName(), ruleKey);
+        activeSeverities.put(rule.getName(), inspectCodeSeverity(activeRule.getSeverity()));
+      } else {
+        activeSeverities.put(key, inspectCodeSeverity(activeRule.getSeverity()));
+      }
+    }
+    this.ruleKeysByKey = ImmutableMap.copyOf(ruleKeysByKey);
+    this.ruleKeysByTypeId = ImmutableMap.copyOf(ruleKeysByTypeId);
+  }
+
+  /**
+   * Severities to configure InspectCode with, keyed by TypeId: every inspection of the default catalog is listed,
+   * and is DO_NOT_SHOW unless active, so that InspectCode does not spend time on the inactive ones.
+   */
+  public Map<String, ReSharperSeverity> severities() {
+    return severities(ImmutableList.of(this));
+  }
+
+  /**
+   * Severities to configure a single InspectCode run of several repositories with: the union of their active rules,
+   * with the highest severity of a TypeId active in more than one.
+   */
+  public static Map<String, ReSharperSeverity> severities(Iterable<ReSharperRuleIndex> ruleIndexes) {
+    Map<String, ReSharperSeverity> severities = Maps.newLinkedHashMap();
+    for (String typeId : catalogTypeIds()) {
+      severities.put(typeId, ReSharperSeverity.DO_NOT_SHOW);
+    }
+    for (ReSharperRuleIndex ruleIndex : ruleIndexes) {
+      for (Map.Entry<String, ReSharperSeverity> activeSeverity : ruleIndex.activeSeverities.entrySet()) {
+        ReSharperSeverity severity = severities.get(activeSeverity.getKey());
+        if (severity == null || activeSeverity.getValue().compareTo(severity) < 0) {
+          severities.put(activeSeverity.getKey(), activeSeverity.getValue());
+        }
+      }
+    }
+    return severities;
+  }
+
+  private static synchronized List<String> catalogTypeIds() {
+    if (catalogTypeIds == null) {
+      ImmutableList.Builder<String> builder = ImmutableList.builder();
+      Reader reader = new InputStreamReader(ReSharperRuleIndex.class.getResourceAsStream(ReSharperPlugin.DEFAULT_RULES), Charsets.UTF_8);
+      try {
+        for (ReSharperRule rule : new ReSharperFileParser().parseRules(reader)) {
+          builder.add(rule.getId());
+        }
+      } finally {
+        IOUtils.closeQuietly(reader);
+      }
+      catalogTypeIds = builder.build();
+    }
+    return catalogTypeIds;
+  }
+
+  /**
+   * The issue severity in SonarQube comes from the quality profile, but InspectCode only reports an issue
+   * if its severity is at least a suggestion.
+   */
+  private static ReSharperSeverity inspectCodeSeverity(@Nullable RulePriority priority) {
+    if (priority == null) {
+      return ReSharperSeverity.WARNING;
+    }
+    ReSharperRule rule = new ReSharperRule();
+    rule.setSonarPriority(priority);
+    return rule.getSeverity() == ReSharperSeverity.HINT ? ReSharperSeverity.SUGGESTION : rule.getSeverity();
+  }
+
+  /**
+   * Returns the key of the active rule reported by ReSharper as the given TypeId, or null if it is missing or inactive.
+   */
+  @Nullable
+  public RuleKey ruleKey(String typeId) {
+    RuleKey ruleKey = ruleKeysByTypeId.get(typeId);
+    return ruleKey != null ? ruleKey : ruleKeysByKey.get(canonicalKey(typeId));
+  }
+
+  /**
+   * Same canonicalization as {@link ReSharperRule#getKey()}.
+   */
+  private static String canonicalKey(String typeId) {
+    return typeId.replace(':', '_');
+  }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of an analysis and counters on what it processed, written as JSON so that
+ * builds can chart them over time.
+ */
+public class ReSharperRunProfile {
+
+  public static final String FILE_NAME = "resharper-run-profile.json";
+
+  private final Map<String, Long> phaseNanos = Maps.newLinkedHashMap();
+  private final Map<String, Long> phaseStarts = Maps.newHashMap();
+  private final Map<String, Long> counters = Maps.newLinkedHashMap();
+
+  public ReSharperRunProfile() {
+    for (MemoryPoolMXBean pool : heapPools()) {
+      pool.resetPeakUsage();
+    }
+  }
+
+  public synchronized void start(String phase) {
+    phaseStarts.put(phase, System.nanoTime());
+  }
+
+  public synchronized void stop(String phase) {
+    Long start = phaseStarts.remove(phase);
+    if (start != null) {
+      addNanos(phase, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Adds to a phase whose time is spent in many short intervals, such as the handling of each issue.
+   */
+  public synchronized void addNanos(String phase, long nanos) {
+    Long previous = phaseNanos.get(phase);
+    phaseNanos.put(phase, previous == null ? nanos : previous + nanos);
+  }
+
+  public void increment(String counter) {
+    add(counter, 1);
+  }
+
+  public synchronized void add(String counter, long value) {
+    Long previous = counters.get(counter);
+    counters.put(counter, previous == null ? value : previous + value);
+  }
+
+  public synchronized void set(String counter, long value) {
+    counters.put(counter, value);
+  }
+
+  public synchronized long counter(String counter) {
+    Long value = counters.get(counter);
+    return value == null ? 0 : value;
+  }
+
+  public synchronized long phaseMillis(String phase) {
+    Long nanos = phaseNanos.get(phase);
+    return nanos == null ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  public synchronized void write(File file) {
+    set("peakHeapBytes", peakHeapBytes());
+
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\n  \"phasesMillis\": {");
+    appendEntries(sb, phaseNanos, true);
+    sb.append("},\n  \"counters\": {");
+    appendEntries(sb, counters, false);
+    sb.append("}\n}\n");
+
+    try {
+      Files.createParentDirs(file);
+      Files.write(sb.toString(), file, Charsets.UTF_8);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static void appendEntries(StringBuilder sb, Map<String, Long> entries, boolean nanosToMillis) {
+    boolean first = true;
+    for (Map.Entry<String, Long> entry : entries.entrySet()) {
+      sb.append(first ? "\n" : ",\n");
+      sb.append("    \"").append(entry.getKey()).append("\": ");
+      sb.append(nanosToMillis ? TimeUnit.NANOSECONDS.toMillis(entry.getValue()) : entry.getValue());
+      first = false;
+    }
+    sb.append(first ? "" : "\n  ");
+  }
+
+  public static long peakHeapBytes() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : heapPools()) {
+      peak += pool.getPeakUsage().getUsed();
+    }
+    return peak;
+  }
+
+  private static List<MemoryPoolMXBean> heapPools() {
+    List<MemoryPoolMXBean> pools = Lists.newArrayList();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        pools.add(pool);
+      }
+    }
+    return pools;
+  }
+
+}
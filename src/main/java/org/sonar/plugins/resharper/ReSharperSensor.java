@@ -20,7 +20,11 @@
 package org.sonar.plugins.resharper;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -33,34 +37,59 @@ import org.sonar.api.issue.Issuable;
 import org.sonar.api.profiles.RulesProfile;
 import org.sonar.api.resources.Project;
 import org.sonar.api.rule.RuleKey;
-import org.sonar.api.rules.ActiveRule;
-import org.sonar.api.scan.filesystem.FileQuery;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.plugins.resharper.ReSharperRule.ReSharperSeverity;
+
+import javax.annotation.Nullable;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ReSharperSensor implements Sensor {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReSharperSensor.class);
+  private static final int CORES_PER_SHARD = 4;
+  private static final long MEMORY_MB_PER_SHARD = 2048;
 
   private final ReSharperConfiguration reSharperConf;
   private final Settings settings;
   private final RulesProfile profile;
   private final ModuleFileSystem fileSystem;
   private final ResourcePerspectives perspectives;
+  private final ReSharperSolutionRuns solutionRuns;
+  private final ReSharperFileIndex fileIndex;
+  private Inspection pendingInspection;
+
+  @VisibleForTesting
+  ReSharperSensor(ReSharperConfiguration reSharperConf, Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives) {
+    this(reSharperConf, settings, profile, fileSystem, perspectives, new ReSharperSolutionRuns());
+  }
 
-  public ReSharperSensor(ReSharperConfiguration reSharperConf, Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives) {
+  public ReSharperSensor(ReSharperConfiguration reSharperConf, Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives,
+    ReSharperSolutionRuns solutionRuns) {
     this.reSharperConf = reSharperConf;
     this.settings = settings;
     this.profile = profile;
     this.fileSystem = fileSystem;
     this.perspectives = perspectives;
+    this.solutionRuns = solutionRuns;
+    this.fileIndex = new ReSharperFileIndex(fileSystem, reSharperConf.languageKey());
   }
 
   @Override
   public boolean shouldExecuteOnProject(Project project) {
+    solutionRuns.startModule(project);
     boolean shouldExecute;
 
     if (!hasFilesToAnalyze()) {
@@ -76,29 +105,215 @@ public class ReSharperSensor implements Sensor {
   }
 
   private boolean hasFilesToAnalyze() {
-    return !fileSystem.files(FileQuery.onSource().onLanguage(reSharperConf.languageKey())).isEmpty();
+    return fileIndex.hasLanguageFiles();
   }
 
   @Override
   public void analyse(Project project, SensorContext context) {
-    analyse(context, new FileProvider(project, context), new ReSharperDotSettingsWriter(), new ReSharperReportParser(), new ReSharperExecutor());
+    analyse(context, new FileProvider(project, context), new ReSharperDotSettingsWriter(), new ReSharperReportParser(parserThreads(), settings.getBoolean(ReSharperPlugin.REPORT_SCANNER_PROPERTY_KEY)), new ReSharperExecutor());
+  }
+
+  /**
+   * The other languages of the module for which a ReSharper sensor executes as well, and then shares the InspectCode run.
+   */
+  private List<ReSharperConfiguration> otherInspectedLanguages() {
+    List<ReSharperConfiguration> languages = Lists.newArrayList();
+    for (ReSharperConfiguration language : ReSharperConfiguration.ALL) {
+      if (!language.repositoryKey().equals(reSharperConf.repositoryKey())
+        && !profile.getActiveRulesByRepository(language.repositoryKey()).isEmpty()
+        && new ReSharperFileIndex(fileSystem, language.languageKey()).hasLanguageFiles()) {
+        languages.add(language);
+      }
+    }
+    return languages;
+  }
+
+  private int parserThreads() {
+    int threads = settings.getInt(ReSharperPlugin.PARSER_THREADS_PROPERTY_KEY);
+    return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Starts InspectCode in the background, so that it runs while the other sensors do.
+   * {@link #analyse(Project, SensorContext)} then waits for its report.
+   */
+  public void startInspection(Project project) {
+    startInspection(new ReSharperDotSettingsWriter(), new ReSharperExecutor());
+  }
+
+  @VisibleForTesting
+  void startInspection(ReSharperDotSettingsWriter writer, ReSharperExecutor executor) {
+    ExecutorService executorService = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("resharper-" + reSharperConf.languageKey() + "-%d").setDaemon(true).build());
+    try {
+      pendingInspection = inspection(writer, executor, executorService);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  public boolean isAsynchronous() {
+    return settings.getBoolean(ReSharperPlugin.ASYNC_PROPERTY_KEY);
   }
 
   @VisibleForTesting
   void analyse(SensorContext context, FileProvider fileProvider, ReSharperDotSettingsWriter writer, ReSharperReportParser parser, ReSharperExecutor executor) {
+    Inspection inspection = pendingInspection;
+    pendingInspection = null;
+    if (inspection == null) {
+      inspection = inspection(writer, executor, MoreExecutors.sameThreadExecutor());
+    }
+
+    try {
+      analyse(fileProvider, parser, inspection);
+    } finally {
+      inspection.runProfile.write(new File(fileSystem.workingDir(), ReSharperRunProfile.FILE_NAME));
+    }
+  }
+
+  private Inspection inspection(final ReSharperDotSettingsWriter writer, final ReSharperExecutor executor, ExecutorService executorService) {
     checkProperties(settings);
 
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperRuleIndex ruleIndex = new ReSharperRuleIndex(reSharperConf.repositoryKey(), profile);
+    File solution = new File(settings.getString(ReSharperPlugin.SOLUTION_FILE_PROPERTY_KEY));
+
+    List<ReSharperRuleIndex> inspectedRuleIndexes = Lists.newArrayList(ruleIndex);
+    for (ReSharperConfiguration language : otherInspectedLanguages()) {
+      inspectedRuleIndexes.add(new ReSharperRuleIndex(language.repositoryKey(), profile));
+    }
+    boolean shared = solutionRuns.isMultiModule() || inspectedRuleIndexes.size() > 1;
+
+    List<String> changedFiles = new ReSharperChangedFiles(settings).get(solution);
+    final Inspection inspection = new Inspection(runProfile, inspectedRuleIndexes, solution, changedFiles);
+    if (changedFiles != null) {
+      if (changedFiles.isEmpty()) {
+        LOG.info("No file changed, skipping the ReSharper analysis.");
+        return inspection;
+      }
+      LOG.info("Restricting the ReSharper analysis to " + changedFiles.size() + " changed files.");
+    }
+
+    Callable<File> reportFile = new Callable<File>() {
+      @Override
+      public File call() {
+        return reportFile(writer, executor, inspection);
+      }
+    };
+    if (shared) {
+      // Used by the sensor of each inspected language of the module
+      inspection.sharedRun = solutionRuns.start(sharedRunKey(settings, solution, inspection.severities, changedFiles), inspectedRuleIndexes.size(),
+        reportFile, executorService);
+      inspection.report = inspection.sharedRun.report();
+    } else {
+      inspection.report = executorService.submit(reportFile);
+    }
+    return inspection;
+  }
+
+  /**
+   * Modules and languages share the InspectCode run of a solution when all the settings it depends on are the same,
+   * whatever the order of the languages.
+   */
+  @VisibleForTesting
+  static String sharedRunKey(Settings settings, File solution, Map<String, ReSharperSeverity> severities, @Nullable List<String> changedFiles) {
+    ReSharperFingerprint fingerprint = new ReSharperFingerprint()
+      .add(solution.getAbsolutePath())
+      .add(new TreeMap<String, ReSharperSeverity>(severities).toString())
+      .add(String.valueOf(changedFiles));
+    for (Map.Entry<String, String> property : new TreeMap<String, String>(settings.getProperties()).entrySet()) {
+      if (property.getKey().startsWith("sonar.resharper.") || property.getKey().startsWith("sonar.dotnet.")) {
+        fingerprint.add(property.getKey() + "=" + property.getValue());
+      }
+    }
+    return fingerprint.toHex();
+  }
+
+  private File reportFile(ReSharperDotSettingsWriter writer, ReSharperExecutor executor, Inspection inspection) {
+    String reportPath = settings.getString(ReSharperPlugin.REPORT_PATH_PROPERTY_KEY);
+    if (StringUtils.isNotEmpty(reportPath)) {
+      return importedReport(reportPath);
+    }
+    return inspect(writer, executor, inspection);
+  }
+
+  private void analyse(FileProvider fileProvider, ReSharperReportParser parser, Inspection inspection) {
+    if (inspection.report == null) {
+      return;
+    }
+
+    ReSharperRunProfile runProfile = inspection.runProfile;
+    runProfile.start("waitReport");
+    File reportFile = inspection.awaitReport();
+    runProfile.stop("waitReport");
+
+    runProfile.set("reportBytes", reportFile.length());
+
+    // Built before the parser threads start, which then only read it
+    fileIndex.index(inspection.solution);
+    IssueSaver issueSaver = new IssueSaver(fileProvider, inspection.solution, inspection.ruleIndex,
+      changedEntries(inspection.solution, inspection.changedFiles), inspection.sharedRun != null, runProfile);
+    runProfile.start("parseReport");
+    if (inspection.sharedRun != null) {
+      if (inspection.sharedRun.markUsed()) {
+        LOG.info("Reusing the ReSharper analysis of the solution shared with a previous module or language.");
+      }
+      // The shared report is also used by the other modules and languages
+      IssueFilter filter = new IssueFilter(inspection.solution, inspection.ruleIndexes, false);
+      issueSaver.handle(inspection.sharedRun.issues(parser, filter));
+      filter.count(runProfile);
+    } else {
+      IssueFilter filter = new IssueFilter(inspection.solution, inspection.ruleIndexes, true);
+      parser.parse(reportFile, filter, issueSaver);
+      filter.count(runProfile);
+    }
+    issueSaver.flush();
+    runProfile.stop("parseReport");
+
+    if (inspection.history != null) {
+      inspection.history.record(runProfile.phaseMillis("inspectCode"), runProfile.counter("issuesParsed"), ReSharperRunProfile.peakHeapBytes());
+    }
+  }
+
+  /**
+   * The report was produced earlier in the pipeline, possibly on another agent: InspectCode is not run.
+   */
+  private File importedReport(String reportPath) {
+    File reportFile = new File(reportPath);
+    if (!reportFile.isAbsolute()) {
+      reportFile = new File(fileSystem.baseDir(), reportPath);
+    }
+    if (!reportFile.isFile()) {
+      throw new ReSharperException("The ReSharper report \"" + reportFile.getAbsolutePath() + "\" does not exist.");
+    }
+    LOG.info("Importing the ReSharper report " + reportFile.getAbsolutePath());
+    return reportFile;
+  }
+
+  private File inspect(ReSharperDotSettingsWriter writer, ReSharperExecutor executor, Inspection inspection) {
+    ReSharperRunProfile runProfile = inspection.runProfile;
+    File solution = inspection.solution;
+    List<String> changedFiles = inspection.changedFiles;
+
+    runProfile.start("writeDotSettings");
     File rulesetFile = new File(fileSystem.workingDir(), "resharper-sonarqube.DotSettings");
-    writer.write(enabledRuleKeys(), rulesetFile);
+    writer.write(inspection.severities, rulesetFile);
+    runProfile.stop("writeDotSettings");
 
     File reportFile = new File(fileSystem.workingDir(), "resharper-report.xml");
     executor.setReportFile(reportFile);
+    executor.setRunProfile(runProfile);
     
     String projectName = settings.getString(ReSharperPlugin.PROJECT_NAME_PROPERTY_KEY);
     executor.setProject(projectName);
     
     String cachesHome=settings.getString(ReSharperPlugin.CACHES_HOME_PROPERTY_KEY);
+    long cachesMaxSizeMb = settings.getLong(ReSharperPlugin.CACHES_MAX_SIZE_MB_PROPERTY_KEY);
+    if (StringUtils.isNotEmpty(cachesHome) && cachesMaxSizeMb > 0) {
+      cachesHome = new ReSharperCaches(new File(cachesHome), cachesMaxSizeMb * 1024 * 1024).acquire(solution, runProfile).getAbsolutePath();
+    }
     executor.setCachesHome(cachesHome);
+    executor.setCachesLockTimeOut(settings.getInt(ReSharperPlugin.CACHES_LOCK_TIMEOUT_MINUTES_PROPERTY_KEY));
     
     File executable=new File(settings.getString(ReSharperPlugin.INSPECTCODE_PATH_PROPERTY_KEY));
     executor.setExecutable(executable);
@@ -112,41 +327,401 @@ public class ReSharperSensor implements Sensor {
     List<String> properties = getProperties();
     executor.addProperties(properties);
     
-    File solution = new File(settings.getString(ReSharperPlugin.SOLUTION_FILE_PROPERTY_KEY));
     executor.setSolution(solution);
+
+    int shards = settings.getInt(ReSharperPlugin.SHARDS_PROPERTY_KEY);
+    if (settings.hasKey(ReSharperPlugin.SHARDS_PROPERTY_KEY) && shards != 1 && StringUtils.isEmpty(projectName)) {
+      List<String> projectNames = Lists.newArrayList();
+      for (ReSharperSolution.Project solutionProject : ReSharperSolution.parse(solution).projects()) {
+        projectNames.add(solutionProject.name());
+      }
+      shards = shards > 1 ? shards : autoShards(projectNames.size());
+      executor.setShards(shards, projectNames);
+    } else {
+      shards = 1;
+    }
+
+    if (changedFiles != null) {
+      executor.setIncludedFiles(changedFiles);
+    }
     
+    // Incremental runs inspect a few files and would skew the history of full runs
+    ReSharperHistory history = changedFiles == null ? new ReSharperHistory(historyDir(), historyKey(solution, projectName, shards)) : null;
+
     int timeout=settings.getInt(ReSharperPlugin.TIMEOUT_MINUTES_PROPERTY_KEY);
+    // The default timeout only applies until the history is long enough to derive one
+    long derivedTimeoutMillis = settings.hasKey(ReSharperPlugin.TIMEOUT_MINUTES_PROPERTY_KEY) || history == null ? 0 : history.timeoutMillis();
+    if (derivedTimeoutMillis > 0) {
+      timeout = (int) TimeUnit.MILLISECONDS.toMinutes(derivedTimeoutMillis + TimeUnit.MINUTES.toMillis(1) - 1);
+      LOG.info("Using a timeout of " + timeout + " minutes derived from the previous InspectCode runs");
+    }
     executor.setTimeOut(timeout);
-    
-    executor.execute();
+    executor.setStallTimeOut(settings.getInt(ReSharperPlugin.STALL_TIMEOUT_MINUTES_PROPERTY_KEY));
+
+    int maxConcurrentRuns = settings.getInt(ReSharperPlugin.MAX_CONCURRENT_RUNS_PROPERTY_KEY);
+    if (maxConcurrentRuns > 0) {
+      executor.setSlots(new ReSharperSlots(slotsDir(), maxConcurrentRuns, settings.getLong(ReSharperPlugin.MIN_FREE_MEMORY_MB_PROPERTY_KEY)));
+    }
 
-    File solutionFile = new File(settings.getString(ReSharperPlugin.SOLUTION_FILE_PROPERTY_KEY));  
-    for (ReSharperIssue issue : parser.parse(reportFile)) {
-      if (!hasFileAndLine(issue)) {
+    if (settings.getBoolean(ReSharperPlugin.REUSE_REPORT_PROPERTY_KEY)) {
+      runProfile.start("checkFingerprint");
+      String fingerprint = new ReSharperFingerprint()
+        .ignoreDirectory(fileSystem.workingDir())
+        .ignoreDirectory(historyDir())
+        .ignoreDirectory(StringUtils.isNotEmpty(cachesHome) ? new File(settings.getString(ReSharperPlugin.CACHES_HOME_PROPERTY_KEY)) : null)
+        .addSolution(ReSharperSolution.parse(solution))
+        .addFileContents(rulesetFile)
+        .addFileContents(StringUtils.isNotEmpty(profile) ? new File(profile) : null)
+        .addFileStamp(executable)
+        .add(executor.toCommand().toCommandLine())
+        .toHex();
+      boolean unchanged = ReSharperFingerprint.matches(reportFile, fingerprint);
+      runProfile.stop("checkFingerprint");
+      if (unchanged) {
+        LOG.info("The solution is unchanged since the previous ReSharper analysis, reusing its report.");
+      } else {
+        ReSharperFingerprint.delete(reportFile);
+        if (execute(executor, inspection, history) == 0 && reportFile.isFile()) {
+          ReSharperFingerprint.save(reportFile, fingerprint);
+        }
+      }
+    } else {
+      execute(executor, inspection, history);
+    }
+
+    return reportFile;
+  }
+
+  private static int execute(ReSharperExecutor executor, Inspection inspection, @Nullable ReSharperHistory history) {
+    if (history != null) {
+      Long predictedMillis = history.predictedMillis();
+      if (predictedMillis != null) {
+        LOG.info("Predicted InspectCode run time: " + TimeUnit.MILLISECONDS.toSeconds(predictedMillis) + " seconds");
+        inspection.runProfile.set("predictedInspectCodeMillis", predictedMillis);
+      }
+    }
+
+    int exitCode = executor.execute();
+    if (exitCode == 0) {
+      // Recorded once the issues are counted
+      inspection.history = history;
+    }
+    return exitCode;
+  }
+
+  private File historyDir() {
+    String historyDir = settings.getString(ReSharperPlugin.HISTORY_DIR_PROPERTY_KEY);
+    return StringUtils.isNotEmpty(historyDir) ? new File(historyDir) : fileSystem.workingDir();
+  }
+
+  private File slotsDir() {
+    String slotsDir = settings.getString(ReSharperPlugin.SLOTS_DIR_PROPERTY_KEY);
+    return StringUtils.isNotEmpty(slotsDir) ? new File(slotsDir) : new File(System.getProperty("java.io.tmpdir"), "resharper-slots");
+  }
+
+  private static String historyKey(File solution, @Nullable String projectName, int shards) {
+    return solution.getAbsolutePath() + "|" + StringUtils.defaultString(projectName) + "|" + shards;
+  }
+
+  /**
+   * InspectCode does not use more than a few cores and takes up to a couple of gigabytes per process.
+   */
+  private static int autoShards(int projects) {
+    int shards = ReSharperHost.availableProcessors() / CORES_PER_SHARD;
+    long freeMemoryMb = ReSharperHost.freePhysicalMemoryMb();
+    if (freeMemoryMb >= 0) {
+      shards = (int) Math.min(shards, freeMemoryMb / MEMORY_MB_PER_SHARD);
+    }
+    shards = Math.max(1, Math.min(shards, projects));
+    LOG.info("Using " + shards + " InspectCode processes");
+    return shards;
+  }
+
+  /**
+   * In incremental mode, only the issues of the changed files are saved.
+   */
+  @Nullable
+  private Set<ReSharperFileIndex.Entry> changedEntries(File solutionFile, @Nullable List<String> changedFiles) {
+    if (changedFiles == null) {
+      return null;
+    }
+
+    Set<ReSharperFileIndex.Entry> entries = Sets.newHashSet();
+    for (String changedFile : changedFiles) {
+      ReSharperFileIndex.Entry entry = fileIndex.get(solutionFile, changedFile);
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * An InspectCode run, possibly still in progress, and what is needed to save the issues of its report.
+   */
+  private static class Inspection {
+
+    private final ReSharperRunProfile runProfile;
+    private final ReSharperRuleIndex ruleIndex;
+    private final List<ReSharperRuleIndex> ruleIndexes;
+    private final Map<String, ReSharperSeverity> severities;
+    private final File solution;
+    private final List<String> changedFiles;
+    private Future<File> report;
+    private ReSharperSolutionRuns.Run sharedRun;
+    private ReSharperHistory history;
+
+    /**
+     * @param ruleIndexes rule index of each language InspectCode is run for, starting with the one of this sensor
+     */
+    public Inspection(ReSharperRunProfile runProfile, List<ReSharperRuleIndex> ruleIndexes, File solution, @Nullable List<String> changedFiles) {
+      this.runProfile = runProfile;
+      this.ruleIndex = ruleIndexes.get(0);
+      this.ruleIndexes = ruleIndexes;
+      this.severities = ReSharperRuleIndex.severities(ruleIndexes);
+      this.solution = solution;
+      this.changedFiles = changedFiles;
+    }
+
+    public File awaitReport() {
+      try {
+        return report.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ReSharperException("Interrupted while waiting for InspectCode");
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+  }
+
+  /**
+   * Rejects in the parser the issues the sensor would discard anyway, and counts them as it would: those of inactive
+   * rules and, when filtering files, those of the files of other languages. The files outside of the module are kept,
+   * for the sensor to log them.
+   * The parser may call it from several threads: the rule and file indexes are only read, the remembered file is
+   * an immutable value, and the counts are added to the run profile once the report is parsed.
+   */
+  private class IssueFilter implements ReSharperIssueFilter {
+
+    private final File solutionFile;
+    private final List<ReSharperRuleIndex> ruleIndexes;
+    private final boolean filterFiles;
+    private final AtomicLong skippedInactiveRule = new AtomicLong();
+    private final AtomicLong skippedOtherLanguage = new AtomicLong();
+    private volatile AcceptedFile lastFile;
+
+    public IssueFilter(File solutionFile, List<ReSharperRuleIndex> ruleIndexes, boolean filterFiles) {
+      this.solutionFile = solutionFile;
+      this.ruleIndexes = ruleIndexes;
+      this.filterFiles = filterFiles;
+    }
+
+    @Override
+    public boolean accept(String typeId, @Nullable String filePath) {
+      if (!isActive(typeId)) {
+        skippedInactiveRule.incrementAndGet();
+        return false;
+      } else if (filterFiles && filePath != null && !isOfLanguage(filePath)) {
+        skippedOtherLanguage.incrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    public void count(ReSharperRunProfile runProfile) {
+      runProfile.add("issuesParsed", skippedInactiveRule.get() + skippedOtherLanguage.get());
+      runProfile.add("issuesSkippedInactiveRule", skippedInactiveRule.get());
+      runProfile.add("issuesSkippedOtherLanguage", skippedOtherLanguage.get());
+    }
+
+    private boolean isActive(String typeId) {
+      for (ReSharperRuleIndex ruleIndex : ruleIndexes) {
+        if (ruleIndex.ruleKey(typeId) != null) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * The issues of a file are consecutive in the report, so the file of the previous one is remembered.
+     */
+    private boolean isOfLanguage(String filePath) {
+      AcceptedFile file = lastFile;
+      if (file == null || !filePath.equals(file.path)) {
+        ReSharperFileIndex.Entry entry = fileIndex.get(solutionFile, filePath);
+        file = new AcceptedFile(filePath, entry == null || entry.languageKey() != null);
+        lastFile = file;
+      }
+      return file.accepted;
+    }
+
+  }
+
+  private static class AcceptedFile {
+
+    private final String path;
+    private final boolean accepted;
+
+    public AcceptedFile(String path, boolean accepted) {
+      this.path = path;
+      this.accepted = accepted;
+    }
+
+  }
+
+  /**
+   * Saves the issues as the parser reads them, so that the report never has to be held in memory.
+   * InspectCode reports the issues file by file: consecutive issues of the same file are batched, so that
+   * the file is resolved once and its issues are saved in one go.
+   */
+  private class IssueSaver implements ReSharperIssueHandler {
+
+    private final FileProvider fileProvider;
+    private final File solutionFile;
+    private final ReSharperRuleIndex ruleIndex;
+    private final Set<ReSharperFileIndex.Entry> changedEntries;
+    private final boolean shared;
+    private final ReSharperRunProfile runProfile;
+    private final ReSharperLineIndex lineIndex = new ReSharperLineIndex(fileSystem.sourceCharset());
+    private final List<ReSharperIssue> fileIssues = Lists.newArrayList();
+    private String filePath;
+
+    public IssueSaver(FileProvider fileProvider, File solutionFile, ReSharperRuleIndex ruleIndex, @Nullable Set<ReSharperFileIndex.Entry> changedEntries,
+      boolean shared, ReSharperRunProfile runProfile) {
+      this.fileProvider = fileProvider;
+      this.solutionFile = solutionFile;
+      this.ruleIndex = ruleIndex;
+      this.changedEntries = changedEntries;
+      this.shared = shared;
+      this.runProfile = runProfile;
+    }
+
+    @Override
+    public void handle(ReSharperIssue issue) {
+      runProfile.increment("issuesParsed");
+      if (!hasFileAndPosition(issue)) {
+        runProfile.increment("issuesSkippedWithoutFileOrLine");
         logSkippedIssue(issue, "which has no associated file.");
-        continue;
+        return;
       }
 
-      File file = fileProvider.fileInSolution(solutionFile, issue.filePath());
-      org.sonar.api.resources.File sonarFile = fileProvider.fromIOFile(file);
-      if (sonarFile == null) {
-        logSkippedIssueOutsideOfSonarQube(issue, file);
-      } else if (reSharperConf.languageKey().equals(sonarFile.getLanguage().getKey())) {
-        Issuable issuable = perspectives.as(Issuable.class, sonarFile);
-        if (issuable == null) {
+      if (!issue.filePath().equals(filePath)) {
+        flush();
+        filePath = issue.filePath();
+      }
+      fileIssues.add(issue);
+    }
+
+    /**
+     * Saves the issues of a shared report, most of which are usually in the files of other modules: those are only
+     * counted, without materializing them.
+     */
+    public void handle(ReSharperIssueStore store) {
+      // 0 when not resolved yet, 1 in the module, -1 outside of it
+      byte[] inModule = new byte[store.fileCount()];
+      int skipped = 0;
+      ReSharperIssueStore.Cursor cursor = store.cursor();
+      while (cursor.next()) {
+        int fileCode = cursor.fileCode();
+        if (fileCode != ReSharperIssueStore.NONE && inModule[fileCode] == 0) {
+          long start = System.nanoTime();
+          inModule[fileCode] = fileIndex.get(solutionFile, cursor.filePath()) == null ? (byte) -1 : (byte) 1;
+          runProfile.addNanos("resolveFiles", System.nanoTime() - start);
+        }
+
+        if (fileCode != ReSharperIssueStore.NONE && inModule[fileCode] == -1) {
+          skipped++;
+        } else {
+          handle(cursor.issue());
+        }
+      }
+      runProfile.add("issuesParsed", skipped);
+      runProfile.add("issuesSkippedOutsideOfModule", skipped);
+    }
+
+    public void flush() {
+      if (fileIssues.isEmpty()) {
+        return;
+      }
+
+      long start = System.nanoTime();
+      ReSharperFileIndex.Entry entry = fileIndex.get(solutionFile, filePath);
+      runProfile.addNanos("resolveFiles", System.nanoTime() - start);
+
+      if (entry == null && shared) {
+        // Most likely in another module
+        runProfile.add("issuesSkippedOutsideOfModule", fileIssues.size());
+      } else if (entry == null) {
+        runProfile.add("issuesSkippedOutsideOfSonarQube", fileIssues.size());
+        File file = fileProvider.fileInSolution(solutionFile, filePath);
+        for (ReSharperIssue issue : fileIssues) {
           logSkippedIssueOutsideOfSonarQube(issue, file);
-        } else if (!enabledRuleKeys().contains(issue.ruleKey())) {
+        }
+      } else if (entry.languageKey() == null) {
+        runProfile.add("issuesSkippedOtherLanguage", fileIssues.size());
+      } else if (changedEntries != null && !changedEntries.contains(entry)) {
+        runProfile.add("issuesSkippedUnchangedFile", fileIssues.size());
+      } else {
+        start = System.nanoTime();
+        Issuable issuable = entry.issuable(fileProvider, perspectives);
+        runProfile.addNanos("resolveFiles", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        save(entry, issuable, fileIssues);
+        runProfile.addNanos("saveIssues", System.nanoTime() - start);
+      }
+
+      fileIssues.clear();
+    }
+
+    private void save(ReSharperFileIndex.Entry entry, @Nullable Issuable issuable, List<ReSharperIssue> issues) {
+      for (ReSharperIssue issue : issues) {
+        RuleKey ruleKey = ruleIndex.ruleKey(issue.ruleKey());
+        if (issuable == null) {
+          runProfile.increment("issuesSkippedOutsideOfSonarQube");
+          logSkippedIssueOutsideOfSonarQube(issue, entry.file());
+        } else if (ruleKey == null) {
+          runProfile.increment("issuesSkippedInactiveRule");
           logSkippedIssue(issue, "because the rule \"" + issue.ruleKey() + "\" is either missing or inactive in the quality profile.");
         } else {
-          issuable.addIssue(
-            issuable.newIssueBuilder()
-              .ruleKey(RuleKey.of(reSharperConf.repositoryKey(), issue.ruleKey()))
-              .line(issue.line())
-              .message(issue.message())
-              .build());
+          Integer line = line(entry, issue);
+          if (line == null) {
+            runProfile.increment("issuesSkippedInvalidOffset");
+            logSkippedIssue(issue, "whose offset " + issue.offset() + " is outside of the file \"" + entry.file().getAbsolutePath() + "\".");
+          } else {
+            runProfile.increment("issuesCreated");
+            issuable.addIssue(
+              issuable.newIssueBuilder()
+                .ruleKey(ruleKey)
+                .line(line)
+                .message(issue.message())
+                .build());
+          }
         }
       }
     }
+
+    /**
+     * Only the files with issues without a line are read, once each.
+     */
+    @Nullable
+    private Integer line(ReSharperFileIndex.Entry entry, ReSharperIssue issue) {
+      if (issue.line() != null) {
+        return issue.line();
+      }
+
+      long start = System.nanoTime();
+      Integer line = lineIndex.line(entry.file(), issue.offset());
+      runProfile.addNanos("resolveOffsets", System.nanoTime() - start);
+      if (line != null) {
+        runProfile.increment("issuesResolvedFromOffset");
+      }
+      return line;
+    }
+
   }
 
 	private List<String> getProperties() {
@@ -163,8 +738,8 @@ public class ReSharperSensor implements Sensor {
 			properties.add(msBuildPropertyName + "=" + value);
 		}
 	}
-  private static boolean hasFileAndLine(ReSharperIssue issue) {
-    return issue.filePath() != null && issue.line() != null;
+  private static boolean hasFileAndPosition(ReSharperIssue issue) {
+    return issue.filePath() != null && (issue.line() != null || issue.offset() != null);
   }
 
   private static void logSkippedIssueOutsideOfSonarQube(ReSharperIssue issue, File file) {
@@ -175,14 +750,6 @@ public class ReSharperSensor implements Sensor {
     LOG.info("Skipping the ReSharper issue at line " + issue.reportLine() + " " + reason);
   }
 
-  private List<String> enabledRuleKeys() {
-    ImmutableList.Builder<String> builder = ImmutableList.builder();
-    for (ActiveRule activeRule : profile.getActiveRulesByRepository(reSharperConf.repositoryKey())) {
-      builder.add(activeRule.getRuleKey());
-    }
-    return builder.build();
-  }
-
   public void checkProperties(Settings settings) {
     //checkProperty(settings, ReSharperPlugin.PROJECT_NAME_PROPERTY_KEY);
     checkProperty(settings, ReSharperPlugin.SOLUTION_FILE_PROPERTY_KEY);
@@ -0,0 +1,129 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent-wide limit on the number of concurrent InspectCode processes, shared by the builds of the agent through
+ * lock files in a common directory: a process may only start while holding one of the slot locks.
+ * A slot is only granted while enough physical memory is free, unless no other process is running, which could free some.
+ */
+public class ReSharperSlots {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperSlots.class);
+  private static final long LOG_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final File dir;
+  private final int maxRuns;
+  private final long minFreeMemoryMb;
+  private final long pollMillis;
+
+  public ReSharperSlots(File dir, int maxRuns, long minFreeMemoryMb) {
+    this(dir, maxRuns, minFreeMemoryMb, 1000);
+  }
+
+  @VisibleForTesting
+  ReSharperSlots(File dir, int maxRuns, long minFreeMemoryMb, long pollMillis) {
+    this.dir = dir;
+    this.maxRuns = maxRuns;
+    this.minFreeMemoryMb = minFreeMemoryMb;
+    this.pollMillis = pollMillis;
+  }
+
+  /**
+   * Waits for a slot, to be released once the process exited.
+   */
+  public ReSharperLock acquire(@Nullable ReSharperRunProfile runProfile) {
+    long start = System.nanoTime();
+    long lastLog = System.currentTimeMillis();
+    ReSharperLock slot;
+    while ((slot = tryAcquire()) == null) {
+      if (System.currentTimeMillis() - lastLog >= LOG_INTERVAL_MILLIS) {
+        lastLog = System.currentTimeMillis();
+        LOG.info("Still waiting for one of the " + maxRuns + " InspectCode slots in " + dir.getAbsolutePath());
+      }
+      try {
+        Thread.sleep(pollMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ReSharperException("Interrupted while waiting for an InspectCode slot");
+      }
+    }
+
+    long waitNanos = System.nanoTime() - start;
+    LOG.info("Acquired the InspectCode slot " + slot.file().getName() + " after " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+    if (runProfile != null) {
+      runProfile.addNanos("waitSlot", waitNanos);
+    }
+    return slot;
+  }
+
+  @Nullable
+  private ReSharperLock tryAcquire() {
+    for (int i = 0; i < maxRuns; i++) {
+      ReSharperLock slot = ReSharperLock.tryAcquire(slotFile(i));
+      if (slot != null) {
+        if (hasEnoughMemory() || !isAnyOtherSlotHeld(i)) {
+          return slot;
+        }
+        slot.release();
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private boolean hasEnoughMemory() {
+    if (minFreeMemoryMb <= 0) {
+      return true;
+    }
+    long freeMemoryMb = freePhysicalMemoryMb();
+    return freeMemoryMb < 0 || freeMemoryMb >= minFreeMemoryMb;
+  }
+
+  private boolean isAnyOtherSlotHeld(int heldSlot) {
+    for (int i = 0; i < maxRuns; i++) {
+      if (i != heldSlot) {
+        if (ReSharperLock.isHeld(slotFile(i))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private File slotFile(int slot) {
+    return new File(dir, "inspectcode-slot-" + slot + ".lock");
+  }
+
+  @VisibleForTesting
+  long freePhysicalMemoryMb() {
+    return ReSharperHost.freePhysicalMemoryMb();
+  }
+
+}
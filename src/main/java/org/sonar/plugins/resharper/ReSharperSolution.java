@@ -0,0 +1,98 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The projects of a Visual Studio solution, read from its .sln file.
+ */
+public class ReSharperSolution {
+
+  // Project("{FAE04EC0-301F-11D3-BF4B-00C04F79EFBC}") = "MyLibrary", "MyLibrary\MyLibrary.csproj", "{9B2650A2-C7C6-435F-80D6-D6C7B522FFF9}"
+  private static final Pattern PROJECT_PATTERN = Pattern.compile("^Project\\(\"[^\"]*\"\\)\\s*=\\s*\"([^\"]*)\"\\s*,\\s*\"([^\"]*)\"", Pattern.MULTILINE);
+
+  private final File file;
+  private final List<Project> projects;
+
+  private ReSharperSolution(File file, List<Project> projects) {
+    this.file = file;
+    this.projects = projects;
+  }
+
+  public static ReSharperSolution parse(File file) {
+    String contents;
+    try {
+      contents = Files.toString(file, Charsets.UTF_8);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+
+    File dir = file.getAbsoluteFile().getParentFile();
+    ImmutableList.Builder<Project> builder = ImmutableList.builder();
+    Matcher matcher = PROJECT_PATTERN.matcher(contents);
+    while (matcher.find()) {
+      String path = matcher.group(2);
+      // Solution folders are listed as projects too, with their name as path
+      if (path.toLowerCase().endsWith("proj")) {
+        builder.add(new Project(matcher.group(1), new File(dir, path.replace('\\', '/'))));
+      }
+    }
+    return new ReSharperSolution(file, builder.build());
+  }
+
+  public File file() {
+    return file;
+  }
+
+  public List<Project> projects() {
+    return projects;
+  }
+
+  public static class Project {
+
+    private final String name;
+    private final File file;
+
+    public Project(String name, File file) {
+      this.name = name;
+      this.file = file;
+    }
+
+    public String name() {
+      return name;
+    }
+
+    public File file() {
+      return file;
+    }
+
+  }
+
+}
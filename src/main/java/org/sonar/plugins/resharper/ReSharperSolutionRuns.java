@@ -0,0 +1,187 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.resources.Project;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * InspectCode runs shared by the modules of a multi-module analysis: the modules analysing the same solution with
+ * the same settings reuse the report of the first one, parsed once, and each saves the issues of its own files.
+ * Modules are analysed one after the other: the users of a run register when their module starts using it, and the
+ * parsed issues are released once they all got them and no module which could use them remains, or at the latest
+ * when the aggregating modules are analysed, after all the others.
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class ReSharperSolutionRuns implements BatchExtension {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReSharperSolutionRuns.class);
+
+  private final Map<String, Run> runs = Maps.newHashMap();
+  private Project module;
+  private int remainingLeafModules = -1;
+
+  /**
+   * Called for each module before its sensors execute, whether they then execute or not.
+   */
+  public void startModule(Project module) {
+    List<Run> idleRuns = Lists.newArrayList();
+    synchronized (this) {
+      if (module == this.module) {
+        return;
+      }
+      this.module = module;
+      if (remainingLeafModules < 0) {
+        remainingLeafModules = leafModules(module.getRoot());
+      }
+      if (module.getModules().isEmpty()) {
+        remainingLeafModules--;
+      } else if (remainingLeafModules <= 0) {
+        idleRuns.addAll(runs.values());
+      }
+    }
+    for (Run run : idleRuns) {
+      run.releaseIfIdle();
+    }
+  }
+
+  private static int leafModules(Project project) {
+    if (project.getModules().isEmpty()) {
+      return 1;
+    }
+    int modules = 0;
+    for (Project child : project.getModules()) {
+      modules += leafModules(child);
+    }
+    return modules;
+  }
+
+  /**
+   * Whether the current module is part of a multi-module analysis, whose other modules may share its runs.
+   */
+  public synchronized boolean isMultiModule() {
+    return module != null && (module.getParent() != null || !module.getModules().isEmpty());
+  }
+
+  /**
+   * Returns the run with the given key, started with the given executor service if it is the first one.
+   * @param users number of times the issues of the run are going to be asked for in the current module, registered
+   * by its first user in the module only
+   */
+  public synchronized Run start(String key, int users, Callable<File> inspection, ExecutorService executorService) {
+    Run run = runs.get(key);
+    if (run == null) {
+      run = new Run(executorService.submit(inspection));
+      runs.put(key, run);
+    }
+    run.register(module, users, remainingLeafModules > 0);
+    return run;
+  }
+
+  public static class Run {
+
+    private final Future<File> report;
+    private boolean registered;
+    private Project registeredModule;
+    private int remainingUsers;
+    private boolean moreModules;
+    private ReSharperIssueStore issues;
+    private boolean parsed;
+    private boolean used;
+
+    private Run(Future<File> report) {
+      this.report = report;
+    }
+
+    private synchronized void register(Project module, int users, boolean moreModules) {
+      if (!registered || module != registeredModule) {
+        registered = true;
+        registeredModule = module;
+        remainingUsers += users;
+        this.moreModules = moreModules;
+      }
+    }
+
+    private synchronized void releaseIfIdle() {
+      if (remainingUsers == 0) {
+        issues = null;
+      }
+    }
+
+    public Future<File> report() {
+      return report;
+    }
+
+    /**
+     * Issues of the report, parsed by the first module to ask for them, and kept in compact form for the others until
+     * the last one. A user the first one did not expect parses the report again.
+     */
+    public synchronized ReSharperIssueStore issues(ReSharperReportParser parser, ReSharperIssueFilter filter) {
+      ReSharperIssueStore store = issues;
+      if (store == null) {
+        if (parsed) {
+          LOG.info("The issues of the shared ReSharper report were already released, parsing it again.");
+        }
+        store = new ReSharperIssueStore();
+        parser.parse(reportFile(), filter, store);
+        parsed = true;
+      }
+      remainingUsers = Math.max(0, remainingUsers - 1);
+      issues = remainingUsers > 0 || moreModules ? store : null;
+      return store;
+    }
+
+    private File reportFile() {
+      try {
+        return report.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ReSharperException("Interrupted while waiting for InspectCode");
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+    /**
+     * Whether a module already used this run.
+     */
+    public synchronized boolean markUsed() {
+      boolean wasUsed = used;
+      used = true;
+      return wasUsed;
+    }
+
+  }
+
+}
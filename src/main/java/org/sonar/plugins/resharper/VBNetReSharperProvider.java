@@ -30,7 +30,7 @@ import java.util.List;
 
 public class VBNetReSharperProvider {
 
-  private static final ReSharperConfiguration RESHARPER_CONF = new ReSharperConfiguration("vbnet", "resharper-vbnet");
+  private static final ReSharperConfiguration RESHARPER_CONF = ReSharperConfiguration.VBNET;
 
   private VBNetReSharperProvider () {
   }
@@ -38,7 +38,8 @@ public class VBNetReSharperProvider {
   public static List extensions() {
     return ImmutableList.of(
       VBNetReSharperRuleRepository.class,
-      VBNetReSharperSensor.class);
+      VBNetReSharperSensor.class,
+      VBNetReSharperInitializer.class);
   }
 
   public static class VBNetReSharperRuleRepository extends ReSharperRuleRepository {
@@ -51,8 +52,17 @@ public class VBNetReSharperProvider {
 
   public static class VBNetReSharperSensor extends ReSharperSensor {
 
-    public VBNetReSharperSensor(Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives) {
-      super(RESHARPER_CONF, settings, profile, fileSystem, perspectives);
+    public VBNetReSharperSensor(Settings settings, RulesProfile profile, ModuleFileSystem fileSystem, ResourcePerspectives perspectives,
+      ReSharperSolutionRuns solutionRuns) {
+      super(RESHARPER_CONF, settings, profile, fileSystem, perspectives, solutionRuns);
+    }
+
+  }
+
+  public static class VBNetReSharperInitializer extends ReSharperInitializer {
+
+    public VBNetReSharperInitializer(VBNetReSharperSensor sensor) {
+      super(sensor);
     }
 
   }
@@ -20,6 +20,7 @@
 package org.sonar.plugins.resharper;
 
 import org.junit.Test;
+import org.sonar.plugins.resharper.CSharpReSharperProvider.CSharpReSharperInitializer;
 import org.sonar.plugins.resharper.CSharpReSharperProvider.CSharpReSharperRuleRepository;
 import org.sonar.plugins.resharper.CSharpReSharperProvider.CSharpReSharperSensor;
 
@@ -31,7 +32,8 @@ public class CSharpReSharperProviderTest {
   public void test() {
     assertThat(CSharpReSharperProvider.extensions()).containsOnly(
       CSharpReSharperRuleRepository.class,
-      CSharpReSharperSensor.class);
+      CSharpReSharperSensor.class,
+      CSharpReSharperInitializer.class);
     ;
   }
 
@@ -0,0 +1,116 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperCachesTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void per_solution_directory() throws Exception {
+    File root = tmp.newFolder("caches");
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperCaches caches = new ReSharperCaches(root, 1024 * 1024);
+
+    File dir = caches.acquire(new File("a/My Solution.sln"), runProfile);
+    assertThat(dir.getParentFile()).isEqualTo(root);
+    assertThat(dir.getName()).startsWith("My_Solution.sln-");
+    assertThat(runProfile.counter("cachesHit")).isEqualTo(0);
+
+    assertThat(caches.acquire(new File("a/My Solution.sln"), runProfile)).isEqualTo(dir);
+    assertThat(runProfile.counter("cachesHit")).isEqualTo(1);
+
+    assertThat(caches.acquire(new File("b/My Solution.sln"), runProfile)).isNotEqualTo(dir);
+  }
+
+  @Test
+  public void evict_least_recently_used() throws Exception {
+    File root = tmp.newFolder("caches");
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperCaches caches = new ReSharperCaches(root, 2500);
+
+    File oldest = fill(caches.acquire(new File("oldest.sln"), runProfile), 1000, 1000);
+    File older = fill(caches.acquire(new File("older.sln"), runProfile), 1000, 2000);
+    File unmanaged = new File(root, "unmanaged");
+    Files.createParentDirs(new File(unmanaged, "file"));
+    Files.write(new byte[1000], new File(unmanaged, "file"));
+
+    File current = caches.acquire(new File("current.sln"), runProfile);
+    assertThat(runProfile.counter("cachesEvicted")).isEqualTo(0);
+    fill(current, 1000, System.currentTimeMillis());
+
+    caches.acquire(new File("current.sln"), runProfile);
+    assertThat(runProfile.counter("cachesEvicted")).isEqualTo(1);
+    assertThat(oldest).doesNotExist();
+    assertThat(older).exists();
+    assertThat(current).exists();
+    assertThat(unmanaged).exists();
+  }
+
+  @Test
+  public void never_evict_the_current_solution() throws Exception {
+    File root = tmp.newFolder("caches");
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperCaches caches = new ReSharperCaches(root, 10);
+
+    File dir = fill(caches.acquire(new File("big.sln"), runProfile), 1000, 1000);
+    assertThat(caches.acquire(new File("big.sln"), runProfile)).exists();
+    assertThat(new File(dir, "caches.bin")).exists();
+  }
+
+  @Test
+  public void never_evict_caches_in_use() throws Exception {
+    File root = tmp.newFolder("caches");
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperCaches caches = new ReSharperCaches(root, 10);
+
+    File used = fill(caches.acquire(new File("used.sln"), runProfile), 1000, 1000);
+    ReSharperLock lock = ReSharperLock.tryAcquire(ReSharperCaches.lockFile(used));
+    try {
+      caches.acquire(new File("current.sln"), runProfile);
+      assertThat(used).exists();
+    } finally {
+      lock.release();
+    }
+
+    caches.acquire(new File("current.sln"), runProfile);
+    assertThat(used).doesNotExist();
+    assertThat(ReSharperCaches.lockFile(used)).doesNotExist();
+  }
+
+  private static File fill(File dir, int bytes, long lastUsed) throws Exception {
+    Files.write(new byte[bytes], new File(dir, "caches.bin"));
+    Files.write("", new File(dir, ReSharperCaches.LAST_USED_FILE_NAME), Charsets.UTF_8);
+    new File(dir, ReSharperCaches.LAST_USED_FILE_NAME).setLastModified(lastUsed);
+    return dir;
+  }
+
+}
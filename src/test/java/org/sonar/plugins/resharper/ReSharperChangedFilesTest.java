@@ -0,0 +1,89 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperChangedFilesTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void explicit_files() {
+    Settings settings = new Settings();
+    settings.setProperty(ReSharperPlugin.CHANGED_FILES_PROPERTY_KEY, "MyLibrary/Class1.cs,MyLibrary/Class2.cs");
+
+    assertThat(new ReSharperChangedFiles(settings).get(new File("Foo.sln"))).containsExactly("MyLibrary/Class1.cs", "MyLibrary/Class2.cs");
+    assertThat(new ReSharperChangedFiles(new Settings()).get(new File("Foo.sln"))).isNull();
+  }
+
+  @Test
+  public void inspect_the_whole_solution_when_too_many_files_changed() {
+    StringBuilder changedFiles = new StringBuilder();
+    for (int i = 0; changedFiles.length() <= ReSharperChangedFiles.MAX_INCLUDE_LENGTH; i++) {
+      changedFiles.append("MyLibrary/").append(Strings.padStart(Integer.toString(i), 40, '0')).append(".cs,");
+    }
+    Settings settings = new Settings();
+    settings.setProperty(ReSharperPlugin.CHANGED_FILES_PROPERTY_KEY, changedFiles.toString());
+
+    assertThat(new ReSharperChangedFiles(settings).get(new File("Foo.sln"))).isNull();
+  }
+
+  @Test
+  public void git_changes_without_deleted_files() throws Exception {
+    File repository = tmp.newFolder("repository");
+    File solutionFile = new File(repository, "Foo.sln");
+    Files.write("solution", solutionFile, Charsets.UTF_8);
+    Files.write("class Changed {}", new File(repository, "Changed.cs"), Charsets.UTF_8);
+    Files.write("class Deleted {}", new File(repository, "Deleted.cs"), Charsets.UTF_8);
+    git(repository, "init", "-q");
+    git(repository, "add", ".");
+    git(repository, "-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "-q", "-m", "initial");
+
+    Files.write("class Changed { int i; }", new File(repository, "Changed.cs"), Charsets.UTF_8);
+    new File(repository, "Deleted.cs").delete();
+    Files.write("class Added {}", new File(repository, "Added.cs"), Charsets.UTF_8);
+
+    Settings settings = new Settings();
+    settings.setProperty(ReSharperPlugin.CHANGED_FILES_GIT_BASE_PROPERTY_KEY, "HEAD");
+    assertThat(new ReSharperChangedFiles(settings).get(solutionFile)).containsExactly("Changed.cs", "Added.cs");
+  }
+
+  private static void git(File directory, String... arguments) throws Exception {
+    String[] command = new String[arguments.length + 1];
+    command[0] = "git";
+    System.arraycopy(arguments, 0, command, 1, arguments.length);
+    Process process = new ProcessBuilder(command).directory(directory).redirectErrorStream(true).start();
+    process.getInputStream().close();
+    assertThat(process.waitFor()).isEqualTo(0);
+  }
+
+}
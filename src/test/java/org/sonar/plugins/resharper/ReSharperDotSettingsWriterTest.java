@@ -20,11 +20,12 @@
 package org.sonar.plugins.resharper;
 
 import com.google.common.base.Charsets;
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.plugins.resharper.ReSharperRule.ReSharperSeverity;
 
 import java.io.File;
 
@@ -38,23 +39,42 @@ public class ReSharperDotSettingsWriterTest {
   @Test
   public void test() throws Exception {
     File file1 = tmp.newFile();
-    new ReSharperDotSettingsWriter().write(ImmutableList.of("foo", "bar"), file1);
+    new ReSharperDotSettingsWriter().write(ImmutableMap.of("foo", ReSharperSeverity.WARNING, "bar", ReSharperSeverity.DO_NOT_SHOW), file1);
     String contents1 = Files.toString(file1, Charsets.UTF_8);
 
     assertThat(contents1.replace("\r", "").replace("\n", ""))
       .isEqualTo(
         "<wpf:ResourceDictionary xml:space=\"preserve\" xmlns:x=\"http://schemas.microsoft.com/winfx/2006/xaml\" xmlns:s=\"clr-namespace:System;assembly=mscorlib\" xmlns:ss=\"urn:shemas-jetbrains-com:settings-storage-xaml\" xmlns:wpf=\"http://schemas.microsoft.com/winfx/2006/xaml/presentation\">"
           + "  <s:String x:Key=\"/Default/CodeInspection/Highlighting/InspectionSeverities/=foo/@EntryIndexedValue\">WARNING</s:String>"
-          + "  <s:String x:Key=\"/Default/CodeInspection/Highlighting/InspectionSeverities/=bar/@EntryIndexedValue\">WARNING</s:String>"
+          + "  <s:String x:Key=\"/Default/CodeInspection/Highlighting/InspectionSeverities/=bar/@EntryIndexedValue\">DO_NOT_SHOW</s:String>"
           + "</wpf:ResourceDictionary>");
 
     File file2 = tmp.newFile();
-    new ReSharperDotSettingsWriter().write(ImmutableList.of("foo.bar", "foo:bar", "baz"), file2);
+    new ReSharperDotSettingsWriter().write(
+      ImmutableMap.of("foo.bar", ReSharperSeverity.ERROR, "foo:bar", ReSharperSeverity.SUGGESTION, "baz", ReSharperSeverity.HINT), file2);
     String contents2 = Files.toString(file2, Charsets.UTF_8);
     assertThat(contents2)
-      .contains("foo_002Ebar")
-      .contains("foo_003Abar")
-      .contains("baz");
+      .contains("=foo_002Ebar/@EntryIndexedValue\">ERROR<")
+      .contains("=foo_003Abar/@EntryIndexedValue\">SUGGESTION<")
+      .contains("=baz/@EntryIndexedValue\">HINT<");
+  }
+
+  @Test
+  public void only_replace_changed_settings() throws Exception {
+    File file = new File(tmp.getRoot(), "settings/resharper-sonarqube.DotSettings");
+    ReSharperDotSettingsWriter writer = new ReSharperDotSettingsWriter();
+
+    writer.write(ImmutableMap.of("foo", ReSharperSeverity.WARNING), file);
+    assertThat(file.setLastModified(1000000)).isTrue();
+
+    writer.write(ImmutableMap.of("foo", ReSharperSeverity.WARNING), file);
+    assertThat(file.lastModified()).isEqualTo(1000000);
+
+    writer.write(ImmutableMap.of("foo", ReSharperSeverity.DO_NOT_SHOW), file);
+    assertThat(file.lastModified()).isNotEqualTo(1000000);
+    assertThat(Files.toString(file, Charsets.UTF_8)).contains(">DO_NOT_SHOW<");
+
+    assertThat(file.getParentFile().list()).containsOnly("resharper-sonarqube.DotSettings");
   }
 
 }
@@ -0,0 +1,86 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mockito;
+import org.sonar.api.scan.filesystem.FileQuery;
+import org.sonar.api.scan.filesystem.ModuleFileSystem;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReSharperFileIndexTest {
+
+  @Test
+  public void test() {
+    File solution = new File("target/ReSharperFileIndexTest/Solution/Foo.sln");
+    File class1 = new File("target/ReSharperFileIndexTest/Solution/MyLibrary/Class1.cs");
+    File class2 = new File("target/ReSharperFileIndexTest/Shared/Class2.cs");
+    File module = new File("target/ReSharperFileIndexTest/Solution/MyLibrary/Module.vb");
+
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.files(Mockito.argThat(new IsLanguageQuery()))).thenReturn(ImmutableList.of(class1, class2));
+    when(fileSystem.files(Mockito.argThat(new IsSourceQuery()))).thenReturn(ImmutableList.of(class1, class2, module));
+
+    ReSharperFileIndex index = new ReSharperFileIndex(fileSystem, "cs");
+    assertThat(index.hasLanguageFiles()).isTrue();
+
+    assertThat(index.get(solution, "MyLibrary\\Class1.cs").file()).isSameAs(class1);
+    assertThat(index.get(solution, "mylibrary\\CLASS1.CS").file()).isSameAs(class1);
+    assertThat(index.get(solution, "MyLibrary\\.\\..\\MyLibrary\\Class1.cs").file()).isSameAs(class1);
+    assertThat(index.get(solution, "MyLibrary\\Class1.cs").languageKey()).isEqualTo("cs");
+    assertThat(index.get(solution, "..\\Shared\\Class2.cs").file()).isSameAs(class2);
+    assertThat(index.get(solution, "MyLibrary\\Module.vb").languageKey()).isNull();
+    assertThat(index.get(solution, "MyLibrary\\Class3.cs")).isNull();
+  }
+
+  @Test
+  public void no_language_files() {
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.<File>of());
+
+    assertThat(new ReSharperFileIndex(fileSystem, "cs").hasLanguageFiles()).isFalse();
+  }
+
+  private static class IsLanguageQuery extends ArgumentMatcher<FileQuery> {
+
+    @Override
+    public boolean matches(Object query) {
+      return query != null && !((FileQuery) query).languages().isEmpty();
+    }
+
+  }
+
+  private static class IsSourceQuery extends ArgumentMatcher<FileQuery> {
+
+    @Override
+    public boolean matches(Object query) {
+      return query != null && ((FileQuery) query).languages().isEmpty();
+    }
+
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperFingerprintTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void test() throws Exception {
+    File solutionFile = tmp.newFile("Foo.sln");
+    Files.write("Project(\"{FAE04EC0-301F-11D3-BF4B-00C04F79EFBC}\") = \"MyLibrary\", \"MyLibrary\\MyLibrary.csproj\", \"{9B2650A2}\"\n", solutionFile, Charsets.UTF_8);
+    File projectDir = tmp.newFolder("MyLibrary");
+    Files.write("<Project />", new File(projectDir, "MyLibrary.csproj"), Charsets.UTF_8);
+    File sourceFile = new File(projectDir, "Class1.cs");
+    Files.write("class Class1 {}", sourceFile, Charsets.UTF_8);
+    File binDir = new File(projectDir, "bin");
+    binDir.mkdir();
+    File binaryFile = new File(binDir, "MyLibrary.dll");
+
+    String fingerprint = fingerprint(solutionFile, "/properties:Configuration=Debug");
+    assertThat(fingerprint(solutionFile, "/properties:Configuration=Debug")).isEqualTo(fingerprint);
+    assertThat(fingerprint(solutionFile, "/properties:Configuration=Release")).isNotEqualTo(fingerprint);
+
+    Files.write("binaries are ignored", binaryFile, Charsets.UTF_8);
+    assertThat(fingerprint(solutionFile, "/properties:Configuration=Debug")).isEqualTo(fingerprint);
+
+    Files.write("class Class1 { int i; }", sourceFile, Charsets.UTF_8);
+    assertThat(fingerprint(solutionFile, "/properties:Configuration=Debug")).isNotEqualTo(fingerprint);
+
+    File reportFile = tmp.newFile("resharper-report.xml");
+    assertThat(ReSharperFingerprint.matches(reportFile, fingerprint)).isFalse();
+    ReSharperFingerprint.save(reportFile, fingerprint);
+    assertThat(ReSharperFingerprint.matches(reportFile, fingerprint)).isTrue();
+    assertThat(ReSharperFingerprint.matches(reportFile, "other")).isFalse();
+    ReSharperFingerprint.delete(reportFile);
+    assertThat(ReSharperFingerprint.matches(reportFile, fingerprint)).isFalse();
+  }
+
+  @Test
+  public void ignore_the_directories_written_by_the_analysis() throws Exception {
+    File solutionFile = tmp.newFile("Foo.sln");
+    Files.write("Project(\"{FAE04EC0-301F-11D3-BF4B-00C04F79EFBC}\") = \"Foo\", \"Foo.csproj\", \"{9B2650A2}\"\n", solutionFile, Charsets.UTF_8);
+    Files.write("<Project />", tmp.newFile("Foo.csproj"), Charsets.UTF_8);
+    File workingDir = tmp.newFolder(".sonar");
+    File reportFile = new File(workingDir, "resharper-report.xml");
+
+    String fingerprint = fingerprint(solutionFile, workingDir);
+    Files.write("<Report />", reportFile, Charsets.UTF_8);
+    ReSharperFingerprint.save(reportFile, fingerprint);
+    Files.write("{}", new File(workingDir, ReSharperRunProfile.FILE_NAME), Charsets.UTF_8);
+
+    assertThat(ReSharperFingerprint.matches(reportFile, fingerprint(solutionFile, workingDir))).isTrue();
+    assertThat(fingerprint(solutionFile, (File) null)).isNotEqualTo(fingerprint);
+  }
+
+  private static String fingerprint(File solutionFile, File ignoredDir) {
+    return new ReSharperFingerprint()
+      .ignoreDirectory(ignoredDir)
+      .addSolution(ReSharperSolution.parse(solutionFile))
+      .toHex();
+  }
+
+  private static String fingerprint(File solutionFile, String commandLine) {
+    return new ReSharperFingerprint()
+      .addSolution(ReSharperSolution.parse(solutionFile))
+      .add(commandLine)
+      .toHex();
+  }
+
+}
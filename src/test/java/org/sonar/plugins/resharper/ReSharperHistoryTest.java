@@ -0,0 +1,137 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperHistoryTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void no_history() throws Exception {
+    ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+
+    assertThat(history.runs()).isEmpty();
+    assertThat(history.predictedMillis()).isNull();
+    assertThat(history.timeoutMillis()).isEqualTo(0);
+  }
+
+  @Test
+  public void record() throws Exception {
+    ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+    history.record(1000, 42, 2048);
+
+    ReSharperHistory.Run run = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln").runs().get(0);
+    assertThat(run.durationMillis()).isEqualTo(1000);
+    assertThat(run.issues()).isEqualTo(42);
+    assertThat(run.peakHeapBytes()).isEqualTo(2048);
+    assertThat(run.time()).isGreaterThan(0);
+
+    assertThat(new ReSharperHistory(tmp.getRoot(), "Other.sln").runs()).isEmpty();
+  }
+
+  @Test
+  public void keep_the_last_runs() throws Exception {
+    ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+    for (int i = 0; i < 60; i++) {
+      history.record(i, 0, 0);
+    }
+
+    assertThat(history.runs()).hasSize(50);
+    assertThat(history.runs().get(0).durationMillis()).isEqualTo(10);
+  }
+
+  @Test
+  public void predict_and_derive_timeout() throws Exception {
+    ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+    long minute = TimeUnit.MINUTES.toMillis(1);
+    for (long duration : new long[] {10 * minute, 12 * minute, 11 * minute, 30 * minute}) {
+      history.record(duration, 0, 0);
+    }
+    assertThat(history.predictedMillis()).isEqualTo(11 * minute);
+    assertThat(history.timeoutMillis()).isEqualTo(0);
+
+    history.record(13 * minute, 0, 0);
+    assertThat(history.timeoutMillis()).isEqualTo(60 * minute);
+  }
+
+  @Test
+  public void minimum_timeout() throws Exception {
+    ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+    for (int i = 0; i < 5; i++) {
+      history.record(1000, 0, 0);
+    }
+    assertThat(history.timeoutMillis()).isEqualTo(TimeUnit.MINUTES.toMillis(5));
+  }
+
+  @Test
+  public void skip_truncated_lines() throws Exception {
+    ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+    history.record(1000, 1, 1);
+    File file = new File(tmp.getRoot(), ReSharperHistory.DIR_NAME).listFiles()[0];
+    Files.append("123\t45", file, Charsets.UTF_8);
+
+    assertThat(history.runs()).hasSize(1);
+  }
+
+  @Test
+  public void concurrent_records() throws Exception {
+    final ReSharperHistory history = new ReSharperHistory(tmp.getRoot(), "CSharpPlayground.sln");
+    ExecutorService executorService = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> records = Lists.newArrayList();
+      for (int i = 0; i < 40; i++) {
+        records.add(executorService.submit(new Runnable() {
+          @Override
+          public void run() {
+            history.record(1000, 1, 1);
+          }
+        }));
+      }
+      for (Future<?> record : records) {
+        record.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+
+    File[] files = new File(tmp.getRoot(), ReSharperHistory.DIR_NAME).listFiles();
+    assertThat(files).hasSize(1);
+    assertThat(history.runs()).isNotEmpty();
+    assertThat(history.runs()).hasSize(Files.readLines(files[0], Charsets.UTF_8).size());
+  }
+
+}
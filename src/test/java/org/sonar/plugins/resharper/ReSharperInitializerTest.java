@@ -0,0 +1,56 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import org.junit.Test;
+import org.sonar.api.resources.Project;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReSharperInitializerTest {
+
+  @Test
+  public void should_execute_only_in_asynchronous_mode() {
+    Project project = mock(Project.class);
+    ReSharperSensor sensor = mock(ReSharperSensor.class);
+    when(sensor.shouldExecuteOnProject(project)).thenReturn(true);
+    ReSharperInitializer initializer = new ReSharperInitializer(sensor);
+
+    assertThat(initializer.shouldExecuteOnProject(project)).isFalse();
+
+    when(sensor.isAsynchronous()).thenReturn(true);
+    assertThat(initializer.shouldExecuteOnProject(project)).isTrue();
+
+    when(sensor.shouldExecuteOnProject(project)).thenReturn(false);
+    assertThat(initializer.shouldExecuteOnProject(project)).isFalse();
+  }
+
+  @Test
+  public void execute() {
+    ReSharperSensor sensor = mock(ReSharperSensor.class);
+    Project project = mock(Project.class);
+    new ReSharperInitializer(sensor).execute(project);
+    verify(sensor).startInspection(project);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperIssueStoreTest {
+
+  @Test
+  public void store() {
+    ReSharperIssueStore store = new ReSharperIssueStore();
+    store.handle(10, "RedundantUsingDirective", "Class1.cs", 1, ReSharperIssueStore.NONE, "Using directive is not required");
+    store.handle(11, "JoinDeclarationAndInitializer", "Class1.cs", ReSharperIssueStore.NONE, 138, "Join declaration and assignment");
+    store.handle(12, "RedundantUsingDirective", null, 3, ReSharperIssueStore.NONE, "Using directive is not required");
+
+    assertThat(store.size()).isEqualTo(3);
+    assertThat(store.ruleCount()).isEqualTo(2);
+    assertThat(store.fileCount()).isEqualTo(1);
+
+    ReSharperIssueStore.Cursor cursor = store.cursor();
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.reportLine()).isEqualTo(10);
+    assertThat(cursor.ruleKey()).isEqualTo("RedundantUsingDirective");
+    assertThat(cursor.fileCode()).isEqualTo(0);
+    assertThat(cursor.filePath()).isEqualTo("Class1.cs");
+    assertThat(cursor.line()).isEqualTo(1);
+    assertThat(cursor.offset()).isNull();
+    assertThat(cursor.message()).isEqualTo("Using directive is not required");
+
+    assertThat(cursor.next()).isTrue();
+    assertThat(cursor.ruleCode()).isEqualTo(1);
+    assertThat(cursor.fileCode()).isEqualTo(0);
+    assertThat(cursor.line()).isNull();
+    assertThat(cursor.issue().offset()).isEqualTo(138);
+
+    assertThat(cursor.next()).isTrue();
+    ReSharperIssue issue = cursor.issue();
+    assertThat(issue.reportLine()).isEqualTo(12);
+    assertThat(issue.ruleKey()).isEqualTo("RedundantUsingDirective");
+    assertThat(cursor.ruleCode()).isEqualTo(0);
+    assertThat(issue.filePath()).isNull();
+    assertThat(cursor.fileCode()).isEqualTo(ReSharperIssueStore.NONE);
+    assertThat(issue.line()).isEqualTo(3);
+
+    assertThat(cursor.next()).isFalse();
+    assertThat(cursor.next()).isFalse();
+  }
+
+  @Test
+  public void replay() {
+    ReSharperIssueStore store = new ReSharperIssueStore();
+    store.handle(10, "RedundantUsingDirective", "Class1.cs", 1, ReSharperIssueStore.NONE, "Using directive is not required");
+    store.handle(11, "JoinDeclarationAndInitializer", null, ReSharperIssueStore.NONE, 138, "Join declaration and assignment");
+
+    final List<ReSharperIssue> issues = Lists.newArrayList();
+    store.replay(ReSharperReportParser.issueObjects(new ReSharperIssueHandler() {
+      @Override
+      public void handle(ReSharperIssue issue) {
+        issues.add(issue);
+      }
+    }));
+
+    assertThat(issues).hasSize(2);
+    assertThat(issues.get(0).reportLine()).isEqualTo(10);
+    assertThat(issues.get(0).filePath()).isEqualTo("Class1.cs");
+    assertThat(issues.get(0).line()).isEqualTo(1);
+    assertThat(issues.get(0).offset()).isNull();
+    assertThat(issues.get(1).ruleKey()).isEqualTo("JoinDeclarationAndInitializer");
+    assertThat(issues.get(1).filePath()).isNull();
+    assertThat(issues.get(1).line()).isNull();
+    assertThat(issues.get(1).offset()).isEqualTo(138);
+    assertThat(issues.get(1).message()).isEqualTo("Join declaration and assignment");
+  }
+
+  @Test
+  public void grow() {
+    ReSharperIssueStore store = new ReSharperIssueStore();
+    for (int i = 0; i < 5000; i++) {
+      store.handle(i, "Rule" + (i % 7), "Class" + (i % 100) + ".cs", i, ReSharperIssueStore.NONE, "Message " + (i % 3));
+    }
+
+    assertThat(store.size()).isEqualTo(5000);
+    assertThat(store.ruleCount()).isEqualTo(7);
+    assertThat(store.fileCount()).isEqualTo(100);
+
+    ReSharperIssueStore.Cursor cursor = store.cursor();
+    int i = 0;
+    while (cursor.next()) {
+      assertThat(cursor.reportLine()).isEqualTo(i);
+      assertThat(cursor.filePath()).isEqualTo("Class" + (i % 100) + ".cs");
+      assertThat(cursor.message()).isEqualTo("Message " + (i % 3));
+      i++;
+    }
+    assertThat(i).isEqualTo(5000);
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.primitives.Bytes;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperLineIndexTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void line_breaks() throws Exception {
+    File file = tmp.newFile("Class1.cs");
+    Files.write("ab\ncd\r\nef\rgh\r\n", file, Charsets.UTF_8);
+    ReSharperLineIndex lineIndex = new ReSharperLineIndex(Charsets.UTF_8);
+
+    assertThat(lineIndex.line(file, 0)).isEqualTo(1);
+    assertThat(lineIndex.line(file, 2)).isEqualTo(1);
+    assertThat(lineIndex.line(file, 3)).isEqualTo(2);
+    assertThat(lineIndex.line(file, 6)).isEqualTo(2);
+    assertThat(lineIndex.line(file, 7)).isEqualTo(3);
+    assertThat(lineIndex.line(file, 10)).isEqualTo(4);
+    assertThat(lineIndex.line(file, 14)).isEqualTo(5);
+    assertThat(lineIndex.line(file, 15)).isNull();
+    assertThat(lineIndex.line(file, -1)).isNull();
+  }
+
+  @Test
+  public void offsets_in_characters_after_bom() throws Exception {
+    File utf8 = tmp.newFile("Utf8.cs");
+    Files.write(Bytes.concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, "// é€\nx".getBytes(Charsets.UTF_8)), utf8);
+    File utf16 = tmp.newFile("Utf16.cs");
+    Files.write(Bytes.concat(new byte[] {(byte) 0xFF, (byte) 0xFE}, "// é€\nx".getBytes(Charsets.UTF_16LE)), utf16);
+    File latin1 = tmp.newFile("Latin1.cs");
+    Files.write("// éé\nx".getBytes(Charsets.ISO_8859_1), latin1);
+
+    ReSharperLineIndex lineIndex = new ReSharperLineIndex(Charsets.ISO_8859_1);
+
+    for (File file : new File[] {utf8, utf16, latin1}) {
+      assertThat(lineIndex.line(file, 5)).isEqualTo(1);
+      assertThat(lineIndex.line(file, 6)).isEqualTo(2);
+      assertThat(lineIndex.line(file, 7)).isEqualTo(2);
+      assertThat(lineIndex.line(file, 8)).isNull();
+    }
+  }
+
+  @Test
+  public void cached() throws Exception {
+    File file = tmp.newFile("Class1.cs");
+    Files.write("a\nb\n", file, Charsets.UTF_8);
+    ReSharperLineIndex lineIndex = new ReSharperLineIndex(null);
+    assertThat(lineIndex.line(file, 2)).isEqualTo(2);
+
+    Files.write("ab\n", file, Charsets.UTF_8);
+    assertThat(lineIndex.line(file, 2)).isEqualTo(2);
+  }
+
+  @Test
+  public void missing_file() {
+    assertThat(new ReSharperLineIndex(Charsets.UTF_8).line(new File(tmp.getRoot(), "Missing.cs"), 0)).isNull();
+  }
+
+}
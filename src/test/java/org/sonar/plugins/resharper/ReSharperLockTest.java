@@ -0,0 +1,131 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperLockTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void exclusive() throws Exception {
+    File lockFile = new File(tmp.getRoot(), "caches/solution.lock");
+
+    ReSharperLock lock = ReSharperLock.tryAcquire(lockFile);
+    assertThat(lock).isNotNull();
+    assertThat(lock.file()).isEqualTo(lockFile);
+    assertThat(ReSharperLock.owner(lockFile)).contains(" since ");
+    assertThat(ReSharperLock.tryAcquire(lockFile)).isNull();
+
+    lock.release();
+    assertThat(ReSharperLock.owner(lockFile)).isEmpty();
+
+    ReSharperLock relock = ReSharperLock.tryAcquire(lockFile);
+    assertThat(relock).isNotNull();
+    relock.release();
+  }
+
+  @Test
+  public void take_over_stale_lock() throws Exception {
+    File lockFile = tmp.newFile("solution.lock");
+    Files.write("1234@crashed-agent since yesterday", lockFile, Charsets.UTF_8);
+
+    ReSharperLock lock = ReSharperLock.acquire(lockFile, 0);
+    assertThat(lock).isNotNull();
+    assertThat(ReSharperLock.owner(lockFile)).doesNotContain("crashed-agent");
+    lock.release();
+  }
+
+  @Test
+  public void bounded_wait() throws Exception {
+    File lockFile = tmp.newFile("solution.lock");
+    final ReSharperLock lock = ReSharperLock.tryAcquire(lockFile);
+
+    long start = System.currentTimeMillis();
+    assertThat(ReSharperLock.acquire(lockFile, 200)).isNull();
+    assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(200);
+
+    new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        lock.release();
+      }
+    }.start();
+    ReSharperLock next = ReSharperLock.acquire(lockFile, 10000);
+    assertThat(next).isNotNull();
+    next.release();
+  }
+
+  @Test
+  public void kept_against_other_processes_while_read_and_probed() throws Exception {
+    File lockFile = tmp.newFile("solution.lock");
+    ReSharperLock lock = ReSharperLock.tryAcquire(lockFile);
+
+    assertThat(ReSharperLock.owner(lockFile)).contains(" since ");
+    assertThat(ReSharperLock.isHeld(lockFile)).isTrue();
+    assertThat(ReSharperLock.tryAcquire(lockFile)).isNull();
+    assertThat(tryAcquireInOtherProcess(lockFile)).isFalse();
+
+    lock.release();
+    assertThat(ReSharperLock.isHeld(lockFile)).isFalse();
+    assertThat(tryAcquireInOtherProcess(lockFile)).isTrue();
+  }
+
+  static boolean tryAcquireInOtherProcess(File lockFile) throws Exception {
+    Process process = new ProcessBuilder(Arrays.asList(
+      new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(),
+      "-cp", System.getProperty("java.class.path"),
+      OtherProcess.class.getName(), lockFile.getAbsolutePath()))
+      .redirectErrorStream(true)
+      .start();
+    process.getInputStream().close();
+    return process.waitFor() == 0;
+  }
+
+  public static class OtherProcess {
+
+    public static void main(String[] args) {
+      ReSharperLock lock = ReSharperLock.tryAcquire(new File(args[0]));
+      if (lock == null) {
+        System.exit(1);
+      }
+      lock.release();
+      System.exit(0);
+    }
+
+  }
+
+}
@@ -22,8 +22,10 @@ package org.sonar.plugins.resharper;
 import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
 import org.sonar.api.config.PropertyDefinition;
+import org.sonar.plugins.resharper.CSharpReSharperProvider.CSharpReSharperInitializer;
 import org.sonar.plugins.resharper.CSharpReSharperProvider.CSharpReSharperRuleRepository;
 import org.sonar.plugins.resharper.CSharpReSharperProvider.CSharpReSharperSensor;
+import org.sonar.plugins.resharper.VBNetReSharperProvider.VBNetReSharperInitializer;
 import org.sonar.plugins.resharper.VBNetReSharperProvider.VBNetReSharperRuleRepository;
 import org.sonar.plugins.resharper.VBNetReSharperProvider.VBNetReSharperSensor;
 
@@ -39,16 +41,34 @@ public class ReSharperPluginTest {
     assertThat(nonProperties(new ReSharperPlugin().getExtensions())).containsOnly(
       CSharpReSharperRuleRepository.class,
       CSharpReSharperSensor.class,
+      CSharpReSharperInitializer.class,
       VBNetReSharperRuleRepository.class,
-      VBNetReSharperSensor.class);
+      VBNetReSharperSensor.class,
+      VBNetReSharperInitializer.class,
+      ReSharperSolutionRuns.class);
 
     assertThat(propertyKeys(new ReSharperPlugin().getExtensions())).containsOnly(
       "sonar.resharper.projectName",
       "sonar.resharper.solutionFile",
       "sonar.resharper.inspectCodePath",
       "sonar.resharper.timeoutMinutes",
+      "sonar.resharper.stallTimeoutMinutes",
       "sonar.resharper.cacheshome",
+      "sonar.resharper.cacheshome.maxSizeMb",
+      "sonar.resharper.cacheshome.lockTimeoutMinutes",
       "sonar.resharper.profile",
+      "sonar.resharper.parserThreads",
+      "sonar.resharper.reportScanner",
+      "sonar.resharper.shards",
+      "sonar.resharper.reuseReport",
+      "sonar.resharper.changedFiles",
+      "sonar.resharper.changedFiles.gitBase",
+      "sonar.resharper.reportPath",
+      "sonar.resharper.async",
+      "sonar.resharper.historyDir",
+      "sonar.resharper.maxConcurrentRuns",
+      "sonar.resharper.minFreeMemoryMb",
+      "sonar.resharper.slotsDir",
       "sonar.resharper.installDirectory",
       "sonar.resharper.customSeverities.definition",
       "sonar.resharper.customSeverities.path",
@@ -0,0 +1,80 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.utils.command.Command;
+import org.sonar.api.utils.command.CommandException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class ReSharperProcessTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Before
+  public void before() {
+    assumeTrue(!SystemUtils.IS_OS_WINDOWS);
+  }
+
+  @Test
+  public void follow_progress() {
+    ReSharperProgress progress = new ReSharperProgress(null, null);
+    Command command = Command.create("sh").addArguments(new String[] {"-c", "echo 'Inspecting a/b.cs'; sleep 0.2; echo 'Inspecting c/d.cs'; exit 3"});
+
+    assertThat(new ReSharperProcess(0, 2000).execute(command, progress)).isEqualTo(3);
+    assertThat(progress.files()).isEqualTo(2);
+    assertThat(progress.projects()).isEqualTo(2);
+  }
+
+  @Test
+  public void kill_stalled_process() {
+    thrown.expect(CommandException.class);
+    thrown.expectMessage("No progress for 1000 ms after 1 files inspected in 1 projects");
+
+    Command command = Command.create("sh").addArguments(new String[] {"-c", "echo 'Inspecting a/b.cs'; sleep 30"});
+    new ReSharperProcess(0, 1000).execute(command, new ReSharperProgress(null, null));
+  }
+
+  @Test
+  public void ignore_the_wait_for_a_slot() throws Exception {
+    ReSharperProgress progress = new ReSharperProgress(null, null);
+    Thread.sleep(1200);
+    Command command = Command.create("sh").addArguments(new String[] {"-c", "sleep 0.5; exit 0"});
+
+    assertThat(new ReSharperProcess(0, 1000).execute(command, progress)).isEqualTo(0);
+  }
+
+  @Test
+  public void kill_after_timeout() {
+    thrown.expect(CommandException.class);
+    thrown.expectMessage("Timeout exceeded: 300 ms");
+
+    Command command = Command.create("sh").addArguments(new String[] {"-c", "while true; do echo tick; sleep 0.05; done"});
+    new ReSharperProcess(300, 200).execute(command, new ReSharperProgress(null, null));
+  }
+
+}
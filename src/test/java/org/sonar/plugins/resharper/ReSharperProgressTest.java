@@ -0,0 +1,69 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperProgressTest {
+
+  @Test
+  public void count_inspected_files_and_projects() throws Exception {
+    File solution = new File("solution/CSharpPlayground.sln");
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperProgress progress = new ReSharperProgress(solution, runProfile);
+
+    progress.output("JetBrains Inspect Code 8.2");
+    progress.output("Analyzing files");
+    assertThat(progress.files()).isEqualTo(0);
+
+    progress.output("Inspecting " + new File("solution/MyLibrary/Class1.cs").getAbsolutePath());
+    progress.output("Inspecting " + new File("solution/MyLibrary/Class2.cs").getAbsolutePath());
+    progress.output("Inspecting MyApplication\\Program.cs");
+    progress.output("Inspecting Program.cs");
+
+    assertThat(progress.files()).isEqualTo(4);
+    assertThat(progress.projects()).isEqualTo(2);
+    assertThat(runProfile.counter("inspectCodeFiles")).isEqualTo(4);
+    assertThat(runProfile.counter("inspectCodeProjects")).isEqualTo(2);
+    assertThat(progress.millisSinceLastOutput()).isLessThan(60000);
+  }
+
+  @Test
+  public void count_shards_into_the_whole_run() throws Exception {
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperProgress total = new ReSharperProgress(new File("solution/CSharpPlayground.sln"), runProfile);
+    ReSharperProgress shard1 = new ReSharperProgress(total);
+    ReSharperProgress shard2 = new ReSharperProgress(total);
+
+    Thread.sleep(20);
+    shard1.output("Inspecting MyLibrary\\Class1.cs");
+    shard1.output("Inspecting MyApplication\\Program.cs");
+
+    assertThat(shard2.files()).isEqualTo(2);
+    assertThat(shard2.projects()).isEqualTo(2);
+    assertThat(runProfile.counter("inspectCodeFiles")).isEqualTo(2);
+    assertThat(shard2.millisSinceLastOutput()).isGreaterThan(shard1.millisSinceLastOutput());
+  }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperReportMergerTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void test() throws Exception {
+    File output = tmp.newFile("merged.xml");
+    new ReSharperReportMerger().merge(ImmutableList.of(
+      new File("src/test/resources/ReSharperReportParserTest/valid.xml"),
+      new File("src/test/resources/ReSharperReportParserTest/projects.xml")), output);
+
+    List<ReSharperIssue> issues = new ReSharperReportParser().parse(output);
+    assertThat(issues).hasSize(8);
+    assertThat(issues.get(0).filePath()).isEqualTo("MyLibrary\\Class1.cs");
+    assertThat(issues.get(3).ruleKey()).isEqualTo("RedundantUsingDirective");
+    assertThat(issues.get(5).message()).isEqualTo("Using directive is not required by the code & can be safely removed");
+    assertThat(issues.get(7).filePath()).isEqualTo("MyTests\\Class1Test.cs");
+    assertThat(issues.get(7).line()).isEqualTo(1);
+
+    assertThat(Files.toString(output, Charsets.UTF_8))
+      .contains("<IssueType Id=\"JoinDeclarationAndInitializer\"")
+      .contains("<Project Name=\"MyApplication\">");
+  }
+
+}
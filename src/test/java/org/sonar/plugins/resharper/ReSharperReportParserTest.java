@@ -19,10 +19,13 @@
  */
 package org.sonar.plugins.resharper;
 
+import com.google.common.collect.Lists;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.util.List;
 
@@ -44,6 +47,7 @@ public class ReSharperReportParserTest {
     assertThat(issue.ruleKey()).isEqualTo("RedundantUsingDirective");
     assertThat(issue.filePath()).isEqualTo("MyLibrary\\Class1.cs");
     assertThat(issue.line()).isNull();
+    assertThat(issue.offset()).isEqualTo(0);
     assertThat(issue.message()).isEqualTo("Using directive is not required by the code and can be safely removed");
 
     issue = issues.get(1);
@@ -51,6 +55,7 @@ public class ReSharperReportParserTest {
     assertThat(issue.ruleKey()).isEqualTo("JoinDeclarationAndInitializer");
     assertThat(issue.filePath()).isEqualTo("MyLibrary\\Class1.cs");
     assertThat(issue.line()).isEqualTo(9);
+    assertThat(issue.offset()).isEqualTo(138);
     assertThat(issue.message()).isEqualTo("Join declaration and assignment");
 
     issue = issues.get(2);
@@ -61,6 +66,64 @@ public class ReSharperReportParserTest {
     assertThat(issue.message()).isEqualTo("Using directive is not required by the code and can be safely removed");
   }
 
+  @Test
+  public void streamed() {
+    final List<String> ruleKeys = Lists.newArrayList();
+    new ReSharperReportParser().parse(new File("src/test/resources/ReSharperReportParserTest/valid.xml"), new ReSharperIssueHandler() {
+      @Override
+      public void handle(ReSharperIssue issue) {
+        ruleKeys.add(issue.ruleKey());
+      }
+    });
+
+    assertThat(ruleKeys).containsExactly("RedundantUsingDirective", "JoinDeclarationAndInitializer", "RedundantUsingDirective");
+  }
+
+  @Test
+  public void parallel() {
+    File file = new File("src/test/resources/ReSharperReportParserTest/projects.xml");
+    List<ReSharperIssue> expected = new ReSharperReportParser().parse(file);
+    List<ReSharperIssue> actual = new ReSharperReportParser(3).parse(file);
+
+    assertThat(expected).hasSize(5);
+    assertThat(actual).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).reportLine()).isEqualTo(expected.get(i).reportLine());
+      assertThat(actual.get(i).ruleKey()).isEqualTo(expected.get(i).ruleKey());
+      assertThat(actual.get(i).filePath()).isEqualTo(expected.get(i).filePath());
+      assertThat(actual.get(i).line()).isEqualTo(expected.get(i).line());
+      assertThat(actual.get(i).message()).isEqualTo(expected.get(i).message());
+    }
+    assertThat(actual.get(2).reportLine()).isEqualTo(21);
+    assertThat(actual.get(2).message()).isEqualTo("Using directive is not required by the code & can be safely removed");
+  }
+
+  @Test
+  public void filtered() {
+    ReSharperIssueFilter filter = new ReSharperIssueFilter() {
+      @Override
+      public boolean accept(String typeId, @Nullable String filePath) {
+        return "RedundantUsingDirective".equals(typeId) && !filePath.startsWith("MyTests");
+      }
+    };
+    File file = new File("src/test/resources/ReSharperReportParserTest/projects.xml");
+
+    for (ReSharperReportParser parser : new ReSharperReportParser[] {new ReSharperReportParser(), new ReSharperReportParser(3), new ReSharperReportParser(1, true)}) {
+      final List<ReSharperIssue> issues = Lists.newArrayList();
+      parser.parse(file, filter, new ReSharperIssueHandler() {
+        @Override
+        public void handle(ReSharperIssue issue) {
+          issues.add(issue);
+        }
+      });
+
+      assertThat(issues).hasSize(2);
+      assertThat(issues.get(0).filePath()).isEqualTo("MyLibrary\\Class1.cs");
+      assertThat(issues.get(1).filePath()).isEqualTo("MyApplication\\Program.cs");
+      assertThat(issues.get(1).message()).isEqualTo("Using directive is not required by the code & can be safely removed");
+    }
+  }
+
   @Test
   public void invalid_line() {
     thrown.expectMessage("Expected an integer instead of \"foo\" for the attribute \"Line\"");
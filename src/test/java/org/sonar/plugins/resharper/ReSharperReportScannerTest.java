@@ -0,0 +1,182 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperReportScannerTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void same_issues_as_stax() {
+    for (String name : new String[] {"valid.xml", "projects.xml"}) {
+      File file = new File("src/test/resources/ReSharperReportParserTest/" + name);
+      List<ReSharperIssue> expected = new ReSharperReportParser().parse(file);
+      assertSameIssues(scan(new ReSharperReportScanner(), file), expected);
+      // Elements truncated by the end of a window are scanned again from the next one
+      assertSameIssues(scan(new ReSharperReportScanner(300), file), expected);
+    }
+  }
+
+  @Test
+  public void line_of_multiline_element() throws Exception {
+    File file = tmp.newFile("report.xml");
+    Files.write("<Issues>\n"
+      + "<Issue TypeId=\"A\"\n  File=\"Class1.cs\"\n  Line=\"12\"\n  Message=\"B\"/>\n"
+      + "</Issues>\n", file, Charsets.UTF_8);
+
+    List<ReSharperIssue> issues = scan(new ReSharperReportScanner(), file);
+
+    assertThat(issues).hasSize(1);
+    assertThat(issues.get(0).reportLine()).isEqualTo(2);
+    assertSameIssues(issues, new ReSharperReportParser().parse(file));
+  }
+
+  @Test
+  public void decode_utf8_and_normalize_with_stax() throws Exception {
+    File file = tmp.newFile("report.xml");
+    Files.write("<Issues>\n"
+      + "<Issue TypeId='A' File=\"Clé.cs\" Line=\"12\" Message=\"Déclaration\"/>\n"
+      + "<Issue TypeId=\"B\" Message=\"Multi\nline &lt;message&gt;\" ></Issue>\n"
+      + "</Issues>\n", file, Charsets.UTF_8);
+
+    List<ReSharperIssue> issues = scan(new ReSharperReportScanner(), file);
+
+    assertThat(issues).hasSize(2);
+    assertThat(issues.get(0).reportLine()).isEqualTo(2);
+    assertThat(issues.get(0).ruleKey()).isEqualTo("A");
+    assertThat(issues.get(0).filePath()).isEqualTo("Clé.cs");
+    assertThat(issues.get(0).line()).isEqualTo(12);
+    assertThat(issues.get(0).message()).isEqualTo("Déclaration");
+    assertThat(issues.get(1).ruleKey()).isEqualTo("B");
+    assertThat(issues.get(1).filePath()).isNull();
+    assertThat(issues.get(1).line()).isNull();
+    assertThat(issues.get(1).message()).isEqualTo("Multi line <message>");
+  }
+
+  @Test
+  public void invalid_line() {
+    thrown.expectMessage("Expected an integer instead of \"foo\" for the attribute \"Line\"");
+    thrown.expectMessage("invalid_line.xml at line 14");
+
+    scan(new ReSharperReportScanner(), new File("src/test/resources/ReSharperReportParserTest/invalid_line.xml"));
+  }
+
+  @Test
+  public void missing_typeid() {
+    thrown.expectMessage("Missing attribute \"TypeId\" in element <Issue>");
+    thrown.expectMessage("missing_typeid.xml at line 14");
+
+    scan(new ReSharperReportScanner(), new File("src/test/resources/ReSharperReportParserTest/missing_typeid.xml"));
+  }
+
+  @Test
+  public void invalid_offset() throws Exception {
+    File file = tmp.newFile("report.xml");
+    Files.write("<Issues>\n<Issue TypeId=\"A\" Offset=\"a-b\" Message=\"B\"/>\n</Issues>\n", file, Charsets.UTF_8);
+
+    thrown.expectMessage("Expected an offset range instead of \"a-b\" for the attribute \"Offset\"");
+    thrown.expectMessage("report.xml at line 2");
+
+    scan(new ReSharperReportScanner(), file);
+  }
+
+  @Test
+  public void long_offset() throws Exception {
+    File file = tmp.newFile("report.xml");
+    Files.write("<Issues>\n<Issue TypeId=\"A\" Offset=\"0001234567890-0001234567899\" Message=\"B\"/>\n</Issues>\n", file, Charsets.UTF_8);
+
+    assertSameIssues(scan(new ReSharperReportScanner(), file), new ReSharperReportParser().parse(file));
+    assertThat(scan(new ReSharperReportScanner(), file).get(0).offset()).isEqualTo(1234567890);
+  }
+
+  @Test
+  public void truncated() throws Exception {
+    File file = tmp.newFile("report.xml");
+    Files.write("<Issues>\n<Issue TypeId=\"A\" Message=\"", file, Charsets.UTF_8);
+
+    thrown.expectMessage("Unexpected end of file in element <Issue>");
+    thrown.expectMessage("report.xml at line 2");
+
+    scan(new ReSharperReportScanner(), file);
+  }
+
+  @Test
+  public void element_larger_than_window() {
+    thrown.expectMessage("Element <Issue> larger than 64 bytes");
+
+    scan(new ReSharperReportScanner(64), new File("src/test/resources/ReSharperReportParserTest/valid.xml"));
+  }
+
+  @Test
+  public void non_existing() {
+    thrown.expectMessage("java.io.FileNotFoundException");
+    thrown.expectMessage("non_existing.xml");
+
+    scan(new ReSharperReportScanner(), new File("src/test/resources/ReSharperReportParserTest/non_existing.xml"));
+  }
+
+  @Test
+  public void selected_by_parser() {
+    List<ReSharperIssue> issues = new ReSharperReportParser(4, true).parse(new File("src/test/resources/ReSharperReportParserTest/valid.xml"));
+
+    assertThat(issues).hasSize(3);
+  }
+
+  private static List<ReSharperIssue> scan(ReSharperReportScanner scanner, File file) {
+    final List<ReSharperIssue> issues = Lists.newArrayList();
+    scanner.parse(file, new ReSharperIssueHandler() {
+      @Override
+      public void handle(ReSharperIssue issue) {
+        issues.add(issue);
+      }
+    });
+    return issues;
+  }
+
+  private static void assertSameIssues(List<ReSharperIssue> actual, List<ReSharperIssue> expected) {
+    assertThat(actual).hasSize(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertThat(actual.get(i).reportLine()).isEqualTo(expected.get(i).reportLine());
+      assertThat(actual.get(i).ruleKey()).isEqualTo(expected.get(i).ruleKey());
+      assertThat(actual.get(i).filePath()).isEqualTo(expected.get(i).filePath());
+      assertThat(actual.get(i).line()).isEqualTo(expected.get(i).line());
+      assertThat(actual.get(i).offset()).isEqualTo(expected.get(i).offset());
+      assertThat(actual.get(i).message()).isEqualTo(expected.get(i).message());
+    }
+  }
+
+}
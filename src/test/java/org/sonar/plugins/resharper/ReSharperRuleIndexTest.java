@@ -0,0 +1,103 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.sonar.api.profiles.RulesProfile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.ActiveRule;
+import org.sonar.api.rules.Rule;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.plugins.resharper.ReSharperRule.ReSharperSeverity;
+
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReSharperRuleIndexTest {
+
+  @Test
+  public void test() {
+    RulesProfile profile = mock(RulesProfile.class);
+    ActiveRule named = mockActiveRule("Xaml.BindingWithContextNotResolved", Rule.create("foo-resharper", "Xaml.BindingWithContextNotResolved", "Xaml.BindingWithContextNotResolved"));
+    ActiveRule unnamed = mockActiveRule("CSharpWarnings__CS0618", null);
+    ActiveRule plain = mockActiveRule("AccessToDisposedClosure", null);
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(ImmutableList.of(named, unnamed, plain));
+
+    ReSharperRuleIndex index = new ReSharperRuleIndex("foo-resharper", profile);
+
+    assertThat(index.ruleKey("Xaml.BindingWithContextNotResolved")).isEqualTo(RuleKey.of("foo-resharper", "Xaml.BindingWithContextNotResolved"));
+    assertThat(index.ruleKey("CSharpWarnings::CS0618")).isEqualTo(RuleKey.of("foo-resharper", "CSharpWarnings__CS0618"));
+    assertThat(index.ruleKey("AccessToDisposedClosure")).isEqualTo(RuleKey.of("foo-resharper", "AccessToDisposedClosure"));
+    assertThat(index.ruleKey("AccessToDisposedClosure")).isEqualTo(RuleKey.of("foo-resharper", "AccessToDisposedClosure"));
+    assertThat(index.ruleKey("Inactive")).isNull();
+    assertThat(index.ruleKey("Inactive")).isNull();
+  }
+
+  @Test
+  public void severities() {
+    RulesProfile profile = mock(RulesProfile.class);
+    ActiveRule blocker = mockActiveRule("AccessToDisposedClosure", Rule.create("foo-resharper", "AccessToDisposedClosure", "AccessToDisposedClosure"));
+    when(blocker.getSeverity()).thenReturn(RulePriority.BLOCKER);
+    ActiveRule info = mockActiveRule("CSharpWarnings__CS0618", Rule.create("foo-resharper", "CSharpWarnings__CS0618", "CSharpWarnings::CS0618"));
+    when(info.getSeverity()).thenReturn(RulePriority.INFO);
+    ActiveRule custom = mockActiveRule("CustomRule", null);
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(ImmutableList.of(blocker, info, custom));
+
+    Map<String, ReSharperSeverity> severities = new ReSharperRuleIndex("foo-resharper", profile).severities();
+
+    assertThat(severities.size()).isGreaterThan(500);
+    assertThat(severities.get("AccessToDisposedClosure")).isEqualTo(ReSharperSeverity.ERROR);
+    assertThat(severities.get("CSharpWarnings::CS0618")).isEqualTo(ReSharperSeverity.SUGGESTION);
+    assertThat(severities.get("CustomRule")).isEqualTo(ReSharperSeverity.WARNING);
+    assertThat(severities.get("AccessToForEachVariableInClosure")).isEqualTo(ReSharperSeverity.DO_NOT_SHOW);
+    assertThat(severities.keySet()).excludes("CSharpWarnings__CS0618");
+  }
+
+  @Test
+  public void severities_of_several_repositories() {
+    RulesProfile profile = mock(RulesProfile.class);
+    ActiveRule csMinor = mockActiveRule("AccessToDisposedClosure", null);
+    when(csMinor.getSeverity()).thenReturn(RulePriority.MINOR);
+    ActiveRule vbBlocker = mockActiveRule("AccessToDisposedClosure", null);
+    when(vbBlocker.getSeverity()).thenReturn(RulePriority.BLOCKER);
+    ActiveRule vbOnly = mockActiveRule("VBWarnings__BC42016", Rule.create("vb-resharper", "VBWarnings__BC42016", "VBWarnings::BC42016"));
+    when(profile.getActiveRulesByRepository("cs-resharper")).thenReturn(ImmutableList.of(csMinor));
+    when(profile.getActiveRulesByRepository("vb-resharper")).thenReturn(ImmutableList.of(vbBlocker, vbOnly));
+
+    Map<String, ReSharperSeverity> severities = ReSharperRuleIndex.severities(ImmutableList.of(
+      new ReSharperRuleIndex("cs-resharper", profile), new ReSharperRuleIndex("vb-resharper", profile)));
+
+    assertThat(severities.get("AccessToDisposedClosure")).isEqualTo(ReSharperSeverity.ERROR);
+    assertThat(severities.get("VBWarnings::BC42016")).isEqualTo(ReSharperSeverity.WARNING);
+    assertThat(severities.get("AccessToForEachVariableInClosure")).isEqualTo(ReSharperSeverity.DO_NOT_SHOW);
+  }
+
+  private static ActiveRule mockActiveRule(String key, Rule rule) {
+    ActiveRule activeRule = mock(ActiveRule.class);
+    when(activeRule.getRuleKey()).thenReturn(key);
+    when(activeRule.getRule()).thenReturn(rule);
+    return activeRule;
+  }
+
+}
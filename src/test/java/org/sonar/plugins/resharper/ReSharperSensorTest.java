@@ -19,14 +19,22 @@
  */
 package org.sonar.plugins.resharper;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
+import com.google.common.io.Files;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.sonar.api.batch.SensorContext;
 import org.sonar.api.component.ResourcePerspectives;
+import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
 import org.sonar.api.issue.Issuable;
 import org.sonar.api.issue.Issuable.IssueBuilder;
@@ -38,12 +46,14 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.scan.filesystem.FileQuery;
 import org.sonar.api.scan.filesystem.ModuleFileSystem;
+import org.sonar.plugins.resharper.ReSharperRule.ReSharperSeverity;
 
 import javax.annotation.Nullable;
 
 import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -55,6 +65,9 @@ public class ReSharperSensorTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
   @Test
   public void shouldExecuteOnProject() {
     Settings settings = mock(Settings.class);
@@ -62,7 +75,7 @@ public class ReSharperSensorTest {
     ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
     ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
 
-    Project project = mock(Project.class);
+    Project project = new Project("project");
 
     ReSharperSensor sensor = new ReSharperSensor(
       new ReSharperConfiguration("", "foo-resharper"),
@@ -101,25 +114,21 @@ public class ReSharperSensorTest {
     File workingDir = new File("target/ReSharperSensorTest/working-dir");
     when(fileSystem.workingDir()).thenReturn(workingDir);
 
-    File fileNotInSonarQube = mock(File.class);
-    File fooFileWithIssuable = mock(File.class);
-    File fooFileWithoutIssuable = mock(File.class);
-    File barFile = mock(File.class);
+    File fooFileWithIssuable = new File("Class4.cs");
+    File otherFooFileWithIssuable = new File("Class5.cs");
+    File fooFileWithoutIssuable = new File("Class6.cs");
+    File barFile = new File("Class7.cs");
+    when(fileSystem.files(Mockito.argThat(new IsLanguageQuery()))).thenReturn(ImmutableList.of(fooFileWithIssuable, otherFooFileWithIssuable, fooFileWithoutIssuable));
+    when(fileSystem.files(Mockito.argThat(new IsSourceQuery()))).thenReturn(ImmutableList.of(fooFileWithIssuable, otherFooFileWithIssuable, fooFileWithoutIssuable, barFile));
 
-    when(fileProvider.fileInSolution(Mockito.any(File.class), Mockito.eq("Class3.cs"))).thenReturn(fileNotInSonarQube);
-    when(fileProvider.fileInSolution(Mockito.any(File.class), Mockito.eq("Class4.cs"))).thenReturn(fooFileWithIssuable);
-    when(fileProvider.fileInSolution(Mockito.any(File.class), Mockito.eq("Class5.cs"))).thenReturn(fooFileWithIssuable);
-    when(fileProvider.fileInSolution(Mockito.any(File.class), Mockito.eq("Class6.cs"))).thenReturn(fooFileWithoutIssuable);
-    when(fileProvider.fileInSolution(Mockito.any(File.class), Mockito.eq("Class7.cs"))).thenReturn(barFile);
+    when(fileProvider.fileInSolution(Mockito.any(File.class), Mockito.eq("Class3.cs"))).thenReturn(new File("Class3.cs"));
 
     org.sonar.api.resources.File fooSonarFileWithIssuable = mockSonarFile("foo");
     org.sonar.api.resources.File fooSonarFileWithoutIssuable = mockSonarFile("foo");
-    org.sonar.api.resources.File barSonarFile = mockSonarFile("bar");
 
-    when(fileProvider.fromIOFile(fileNotInSonarQube)).thenReturn(null);
     when(fileProvider.fromIOFile(fooFileWithIssuable)).thenReturn(fooSonarFileWithIssuable);
+    when(fileProvider.fromIOFile(otherFooFileWithIssuable)).thenReturn(fooSonarFileWithIssuable);
     when(fileProvider.fromIOFile(fooFileWithoutIssuable)).thenReturn(fooSonarFileWithoutIssuable);
-    when(fileProvider.fromIOFile(barFile)).thenReturn(barSonarFile);
 
     Issue issue1 = mock(Issue.class);
     IssueBuilder issueBuilder1 = mockIssueBuilder();
@@ -135,20 +144,24 @@ public class ReSharperSensorTest {
 
     ReSharperDotSettingsWriter writer = mock(ReSharperDotSettingsWriter.class);
 
-    ReSharperReportParser parser = mock(ReSharperReportParser.class);
-    when(parser.parse(new File(workingDir, "resharper-report.xml"))).thenReturn(
-      ImmutableList.of(
-        new ReSharperIssue(100, "AccessToDisposedClosure", null, 1, "Dummy message"),
-        new ReSharperIssue(200, "AccessToDisposedClosure", "Class2.cs", null, "Dummy message"),
-        new ReSharperIssue(400, "AccessToDisposedClosure", "Class3.cs", 3, "First message"),
-        new ReSharperIssue(500, "AccessToDisposedClosure", "Class4.cs", 4, "Second message"),
-        new ReSharperIssue(600, "AccessToForEachVariableInClosure", "Class5.cs", 5, "Third message"),
-        new ReSharperIssue(700, "AccessToDisposedClosure", "Class6.cs", 6, "Fourth message"),
-        new ReSharperIssue(800, "AccessToDisposedClosure", "Class7.cs", 7, "Fifth message")));
+    ReSharperReportParser parser = mockParser(new File(workingDir, "resharper-report.xml"),
+      new ReSharperIssue(100, "AccessToDisposedClosure", null, 1, "Dummy message"),
+      new ReSharperIssue(200, "AccessToDisposedClosure", "Class2.cs", null, "Dummy message"),
+      new ReSharperIssue(400, "AccessToDisposedClosure", "Class3.cs", 3, "First message"),
+      new ReSharperIssue(500, "AccessToDisposedClosure", "Class4.cs", 4, "Second message"),
+      new ReSharperIssue(600, "AccessToForEachVariableInClosure", "CLASS5.cs", 5, "Third message"),
+      new ReSharperIssue(700, "AccessToDisposedClosure", "Class6.cs", 6, "Fourth message"),
+      new ReSharperIssue(800, "AccessToDisposedClosure", "Class7.cs", 7, "Fifth message"),
+      new ReSharperIssue(900, "InactiveRule", "Class4.cs", 8, "Sixth message"),
+      new ReSharperIssue(1000, "InactiveRule", "Class4.cs", 9, "Seventh message"));
 
     sensor.analyse(context, fileProvider, writer, parser, executor);
 
-    verify(writer).write(ImmutableList.of("AccessToDisposedClosure", "AccessToForEachVariableInClosure"), new File(workingDir, "resharper-sonarqube.DotSettings"));
+    ArgumentCaptor<Map> severities = ArgumentCaptor.forClass(Map.class);
+    verify(writer).write(severities.capture(), Mockito.eq(new File(workingDir, "resharper-sonarqube.DotSettings")));
+    assertThat(severities.getValue().get("AccessToDisposedClosure")).isEqualTo(ReSharperSeverity.WARNING);
+    assertThat(severities.getValue().get("AccessToForEachVariableInClosure")).isEqualTo(ReSharperSeverity.WARNING);
+    assertThat(severities.getValue().get("RedundantUsingDirective")).isEqualTo(ReSharperSeverity.DO_NOT_SHOW);
     executor.setExecutable(new File("inspectcode.exe"));
     executor.setSolution(new File("CSharpPlayground.sln"));
     executor.setReportFile(new File(workingDir,"resharper-report.xml"));
@@ -167,6 +180,376 @@ public class ReSharperSensorTest {
 
     verify(issueBuilder2).line(5);
     verify(issueBuilder2).message("Third message");
+
+    String runProfile = Files.toString(new File(workingDir, "resharper-run-profile.json"), Charsets.UTF_8);
+    assertThat(runProfile)
+      .contains("\"issuesParsed\": 9")
+      .contains("\"issuesSkippedWithoutFileOrLine\": 2")
+      .contains("\"issuesSkippedOutsideOfSonarQube\": 2")
+      .contains("\"issuesSkippedOtherLanguage\": 1")
+      .contains("\"issuesSkippedInactiveRule\": 2")
+      .contains("\"issuesCreated\": 2")
+      .contains("\"parseReport\": ");
+
+    verify(fileProvider, Mockito.never()).fromIOFile(barFile);
+    verify(fileProvider, Mockito.times(1)).fromIOFile(fooFileWithIssuable);
+    verify(perspectives, Mockito.times(2)).as(Issuable.class, fooSonarFileWithIssuable);
+  }
+
+  @Test
+  public void analyze_changed_files() {
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    settings.setProperty(ReSharperPlugin.CHANGED_FILES_PROPERTY_KEY, "Class2.cs");
+    RulesProfile profile = mock(RulesProfile.class);
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+
+    ReSharperSensor sensor = new ReSharperSensor(
+      new ReSharperConfiguration("foo", "foo-resharper"),
+      settings, profile, fileSystem, perspectives);
+
+    List<ActiveRule> activeRules = mockActiveRules("AccessToDisposedClosure");
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(activeRules);
+
+    File workingDir = new File("target/ReSharperSensorTest/working-dir");
+    when(fileSystem.workingDir()).thenReturn(workingDir);
+
+    File unchangedFile = new File("Class1.cs");
+    File changedFile = new File("Class2.cs");
+    when(fileSystem.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.of(unchangedFile, changedFile));
+
+    FileProvider fileProvider = mock(FileProvider.class);
+    org.sonar.api.resources.File unchangedSonarFile = mockSonarFile("foo");
+    org.sonar.api.resources.File changedSonarFile = mockSonarFile("foo");
+    when(fileProvider.fromIOFile(unchangedFile)).thenReturn(unchangedSonarFile);
+    when(fileProvider.fromIOFile(changedFile)).thenReturn(changedSonarFile);
+
+    Issuable issuable = mock(Issuable.class);
+    IssueBuilder issueBuilder = mockIssueBuilder();
+    when(issuable.newIssueBuilder()).thenReturn(issueBuilder);
+    when(perspectives.as(Issuable.class, changedSonarFile)).thenReturn(issuable);
+
+    ReSharperReportParser parser = mockParser(new File(workingDir, "resharper-report.xml"),
+      new ReSharperIssue(100, "AccessToDisposedClosure", "Class1.cs", 1, "First message"),
+      new ReSharperIssue(200, "AccessToDisposedClosure", "Class2.cs", 2, "Second message"));
+    ReSharperExecutor executor = mock(ReSharperExecutor.class);
+
+    sensor.analyse(mock(SensorContext.class), fileProvider, mock(ReSharperDotSettingsWriter.class), parser, executor);
+
+    verify(executor).setIncludedFiles(ImmutableList.of("Class2.cs"));
+    verify(perspectives, Mockito.never()).as(Issuable.class, unchangedSonarFile);
+    verify(issueBuilder).message("Second message");
+    verify(issuable, Mockito.times(1)).addIssue(Mockito.any(Issue.class));
+  }
+
+  @Test
+  public void analyze_imported_report() throws Exception {
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    settings.setProperty(ReSharperPlugin.REPORT_PATH_PROPERTY_KEY, "reports/inspectcode.xml");
+    RulesProfile profile = mock(RulesProfile.class);
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+
+    ReSharperSensor sensor = new ReSharperSensor(
+      new ReSharperConfiguration("foo", "foo-resharper"),
+      settings, profile, fileSystem, perspectives);
+
+    List<ActiveRule> activeRules = mockActiveRules("AccessToDisposedClosure");
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(activeRules);
+
+    File baseDir = tmp.newFolder("base-dir");
+    File reportFile = new File(baseDir, "reports/inspectcode.xml");
+    reportFile.getParentFile().mkdirs();
+    reportFile.createNewFile();
+    when(fileSystem.baseDir()).thenReturn(baseDir);
+    when(fileSystem.workingDir()).thenReturn(tmp.newFolder("working-dir"));
+
+    File file = new File("Class1.cs");
+    when(fileSystem.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.of(file));
+
+    FileProvider fileProvider = mock(FileProvider.class);
+    org.sonar.api.resources.File sonarFile = mockSonarFile("foo");
+    when(fileProvider.fromIOFile(file)).thenReturn(sonarFile);
+
+    Issuable issuable = mock(Issuable.class);
+    IssueBuilder issueBuilder = mockIssueBuilder();
+    when(issuable.newIssueBuilder()).thenReturn(issueBuilder);
+    when(perspectives.as(Issuable.class, sonarFile)).thenReturn(issuable);
+
+    ReSharperReportParser parser = mockParser(reportFile,
+      new ReSharperIssue(100, "AccessToDisposedClosure", "Class1.cs", 1, "First message"));
+    ReSharperDotSettingsWriter writer = mock(ReSharperDotSettingsWriter.class);
+    ReSharperExecutor executor = mock(ReSharperExecutor.class);
+
+    sensor.analyse(mock(SensorContext.class), fileProvider, writer, parser, executor);
+
+    Mockito.verifyZeroInteractions(writer, executor);
+    verify(issueBuilder).message("First message");
+    verify(issuable).addIssue(Mockito.any(Issue.class));
+  }
+
+  @Test
+  public void analyze_missing_imported_report() throws Exception {
+    thrown.expect(ReSharperException.class);
+    thrown.expectMessage("missing.xml");
+
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    settings.setProperty(ReSharperPlugin.REPORT_PATH_PROPERTY_KEY, "missing.xml");
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.baseDir()).thenReturn(tmp.newFolder("base-dir"));
+    when(fileSystem.workingDir()).thenReturn(tmp.newFolder("working-dir"));
+
+    ReSharperSensor sensor = new ReSharperSensor(
+      new ReSharperConfiguration("foo", "foo-resharper"),
+      settings, mock(RulesProfile.class), fileSystem, mock(ResourcePerspectives.class));
+
+    sensor.analyse(mock(SensorContext.class), mock(FileProvider.class), mock(ReSharperDotSettingsWriter.class), mock(ReSharperReportParser.class),
+      mock(ReSharperExecutor.class));
+  }
+
+  @Test
+  public void analyze_started_inspection() throws Exception {
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    settings.setProperty(ReSharperPlugin.ASYNC_PROPERTY_KEY, true);
+    RulesProfile profile = mock(RulesProfile.class);
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+
+    ReSharperSensor sensor = new ReSharperSensor(
+      new ReSharperConfiguration("foo", "foo-resharper"),
+      settings, profile, fileSystem, perspectives);
+    assertThat(sensor.isAsynchronous()).isTrue();
+
+    List<ActiveRule> activeRules = mockActiveRules("AccessToDisposedClosure");
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(activeRules);
+
+    File workingDir = tmp.newFolder("working-dir");
+    when(fileSystem.workingDir()).thenReturn(workingDir);
+
+    File file = new File("Class1.cs");
+    when(fileSystem.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.of(file));
+
+    FileProvider fileProvider = mock(FileProvider.class);
+    org.sonar.api.resources.File sonarFile = mockSonarFile("foo");
+    when(fileProvider.fromIOFile(file)).thenReturn(sonarFile);
+
+    Issuable issuable = mock(Issuable.class);
+    IssueBuilder issueBuilder = mockIssueBuilder();
+    when(issuable.newIssueBuilder()).thenReturn(issueBuilder);
+    when(perspectives.as(Issuable.class, sonarFile)).thenReturn(issuable);
+
+    ReSharperDotSettingsWriter startedWriter = mock(ReSharperDotSettingsWriter.class);
+    ReSharperExecutor startedExecutor = mock(ReSharperExecutor.class);
+    sensor.startInspection(startedWriter, startedExecutor);
+
+    ReSharperReportParser parser = mockParser(new File(workingDir, "resharper-report.xml"),
+      new ReSharperIssue(100, "AccessToDisposedClosure", "Class1.cs", 1, "First message"));
+    ReSharperDotSettingsWriter writer = mock(ReSharperDotSettingsWriter.class);
+    ReSharperExecutor executor = mock(ReSharperExecutor.class);
+
+    sensor.analyse(mock(SensorContext.class), fileProvider, writer, parser, executor);
+
+    verify(startedExecutor).execute();
+    Mockito.verifyZeroInteractions(writer, executor);
+    verify(issuable).addIssue(Mockito.any(Issue.class));
+    assertThat(Files.toString(new File(workingDir, ReSharperRunProfile.FILE_NAME), Charsets.UTF_8)).contains("\"waitReport\"");
+
+    File[] history = new File(workingDir, ReSharperHistory.DIR_NAME).listFiles();
+    assertThat(history).hasSize(1);
+    assertThat(Files.toString(history[0], Charsets.UTF_8)).matches("\\d+\t\\d+\t1\t\\d+\n");
+  }
+
+  @Test
+  public void timeout_derived_from_history() throws Exception {
+    Settings settings = new Settings(new PropertyDefinitions().addComponents(new ReSharperPlugin().getExtensions()));
+    settings.setProperty(ReSharperPlugin.PROJECT_NAME_PROPERTY_KEY, "MyLibrary");
+    settings.setProperty(ReSharperPlugin.SOLUTION_FILE_PROPERTY_KEY, "CSharpPlayground.sln");
+    settings.setProperty(ReSharperPlugin.INSPECTCODE_PATH_PROPERTY_KEY, "inspectcode.exe");
+    RulesProfile profile = mock(RulesProfile.class);
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    File workingDir = tmp.newFolder("working-dir");
+    when(fileSystem.workingDir()).thenReturn(workingDir);
+
+    ReSharperSensor sensor = new ReSharperSensor(
+      new ReSharperConfiguration("foo", "foo-resharper"),
+      settings, profile, fileSystem, mock(ResourcePerspectives.class));
+    ReSharperExecutor executor = mock(ReSharperExecutor.class);
+    ReSharperReportParser parser = mockParser(new File(workingDir, "resharper-report.xml"));
+    sensor.analyse(mock(SensorContext.class), mock(FileProvider.class), mock(ReSharperDotSettingsWriter.class), parser, executor);
+    verify(executor).setTimeOut(60);
+
+    ReSharperHistory history = new ReSharperHistory(workingDir, new File("CSharpPlayground.sln").getAbsolutePath() + "|MyLibrary|1");
+    for (int i = 0; i < 5; i++) {
+      history.record(TimeUnit.MINUTES.toMillis(10), 0, 0);
+    }
+    executor = mock(ReSharperExecutor.class);
+    sensor.analyse(mock(SensorContext.class), mock(FileProvider.class), mock(ReSharperDotSettingsWriter.class), parser, executor);
+    verify(executor).setTimeOut(20);
+
+    settings.setProperty(ReSharperPlugin.TIMEOUT_MINUTES_PROPERTY_KEY, 30);
+    executor = mock(ReSharperExecutor.class);
+    sensor.analyse(mock(SensorContext.class), mock(FileProvider.class), mock(ReSharperDotSettingsWriter.class), parser, executor);
+    verify(executor).setTimeOut(30);
+  }
+
+  @Test
+  public void analyze_shared_inspection() throws Exception {
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    RulesProfile profile = mock(RulesProfile.class);
+    List<ActiveRule> activeRules = mockActiveRules("AccessToDisposedClosure");
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(activeRules);
+    ReSharperSolutionRuns solutionRuns = new ReSharperSolutionRuns();
+    Project root = new Project("root");
+    Project module1 = new Project("module1");
+    module1.setParent(root);
+    Project module2 = new Project("module2");
+    module2.setParent(root);
+
+    File workingDir = tmp.newFolder("working-dir");
+    File file1 = new File("Module1/Class1.cs");
+    File file2 = new File("Module2/Class2.cs");
+
+    ModuleFileSystem fileSystem1 = mock(ModuleFileSystem.class);
+    when(fileSystem1.workingDir()).thenReturn(workingDir);
+    when(fileSystem1.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.of(file1));
+    ResourcePerspectives perspectives1 = mock(ResourcePerspectives.class);
+    FileProvider fileProvider1 = mock(FileProvider.class);
+    Issuable issuable1 = mockIssuable(perspectives1, fileProvider1, file1);
+    ReSharperReportParser parser1 = mockParser(new File(workingDir, "resharper-report.xml"),
+      new ReSharperIssue(100, "AccessToDisposedClosure", "Module1/Class1.cs", 1, "First message"),
+      new ReSharperIssue(200, "AccessToDisposedClosure", "Module2/Class2.cs", 2, "Second message"));
+    ReSharperExecutor executor1 = mock(ReSharperExecutor.class);
+
+    solutionRuns.startModule(module1);
+    new ReSharperSensor(new ReSharperConfiguration("foo", "foo-resharper"), settings, profile, fileSystem1, perspectives1, solutionRuns)
+      .analyse(mock(SensorContext.class), fileProvider1, mock(ReSharperDotSettingsWriter.class), parser1, executor1);
+
+    ModuleFileSystem fileSystem2 = mock(ModuleFileSystem.class);
+    when(fileSystem2.workingDir()).thenReturn(tmp.newFolder("working-dir-2"));
+    when(fileSystem2.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.of(file2));
+    ResourcePerspectives perspectives2 = mock(ResourcePerspectives.class);
+    FileProvider fileProvider2 = mock(FileProvider.class);
+    Issuable issuable2 = mockIssuable(perspectives2, fileProvider2, file2);
+    ReSharperReportParser parser2 = mock(ReSharperReportParser.class);
+    ReSharperDotSettingsWriter writer2 = mock(ReSharperDotSettingsWriter.class);
+    ReSharperExecutor executor2 = mock(ReSharperExecutor.class);
+
+    solutionRuns.startModule(module2);
+    new ReSharperSensor(new ReSharperConfiguration("foo", "foo-resharper"), settings, profile, fileSystem2, perspectives2, solutionRuns)
+      .analyse(mock(SensorContext.class), fileProvider2, writer2, parser2, executor2);
+
+    verify(executor1).execute();
+    verify(parser1).parse(Mockito.eq(new File(workingDir, "resharper-report.xml")), Mockito.any(ReSharperIssueFilter.class),
+      Mockito.any(ReSharperRawIssueHandler.class));
+    Mockito.verifyZeroInteractions(writer2, executor2, parser2);
+    verify(issuable1).addIssue(Mockito.any(Issue.class));
+    verify(issuable2).addIssue(Mockito.any(Issue.class));
+  }
+
+  @Test
+  public void analyze_mixed_languages() throws Exception {
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    RulesProfile profile = mock(RulesProfile.class);
+    List<ActiveRule> csActiveRules = mockActiveRules("AccessToDisposedClosure");
+    when(profile.getActiveRulesByRepository("resharper-cs")).thenReturn(csActiveRules);
+    List<ActiveRule> vbActiveRules = mockActiveRules("UnusedVariable");
+    when(profile.getActiveRulesByRepository("resharper-vbnet")).thenReturn(vbActiveRules);
+    ReSharperSolutionRuns solutionRuns = new ReSharperSolutionRuns();
+
+    File workingDir = tmp.newFolder("working-dir");
+    File csFile = new File("Class1.cs");
+    File vbFile = new File("Module1.vb");
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.workingDir()).thenReturn(workingDir);
+    when(fileSystem.files(Mockito.argThat(new IsLanguageQuery("cs")))).thenReturn(ImmutableList.of(csFile));
+    when(fileSystem.files(Mockito.argThat(new IsLanguageQuery("vbnet")))).thenReturn(ImmutableList.of(vbFile));
+    when(fileSystem.files(Mockito.argThat(new IsSourceQuery()))).thenReturn(ImmutableList.of(csFile, vbFile));
+
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+    FileProvider fileProvider = mock(FileProvider.class);
+    Issuable csIssuable = mockIssuable(perspectives, fileProvider, csFile);
+    Issuable vbIssuable = mockIssuable(perspectives, fileProvider, vbFile);
+
+    ReSharperReportParser parser = mockParser(new File(workingDir, "resharper-report.xml"),
+      new ReSharperIssue(100, "AccessToDisposedClosure", "Class1.cs", 1, "First message"),
+      new ReSharperIssue(200, "UnusedVariable", "Module1.vb", 2, "Second message"));
+    ReSharperDotSettingsWriter writer = mock(ReSharperDotSettingsWriter.class);
+    ReSharperExecutor executor = mock(ReSharperExecutor.class);
+
+    new ReSharperSensor(ReSharperConfiguration.CSHARP, settings, profile, fileSystem, perspectives, solutionRuns)
+      .analyse(mock(SensorContext.class), fileProvider, writer, parser, executor);
+    verify(csIssuable).addIssue(Mockito.any(Issue.class));
+    Mockito.verifyZeroInteractions(vbIssuable);
+
+    new ReSharperSensor(ReSharperConfiguration.VBNET, settings, profile, fileSystem, perspectives, solutionRuns)
+      .analyse(mock(SensorContext.class), fileProvider, writer, parser, executor);
+    verify(vbIssuable).addIssue(Mockito.any(Issue.class));
+    verify(csIssuable).addIssue(Mockito.any(Issue.class));
+
+    verify(executor).execute();
+    verify(parser).parse(Mockito.eq(new File(workingDir, "resharper-report.xml")), Mockito.any(ReSharperIssueFilter.class),
+      Mockito.any(ReSharperRawIssueHandler.class));
+    ArgumentCaptor<Map> severities = ArgumentCaptor.forClass(Map.class);
+    verify(writer).write(severities.capture(), Mockito.any(File.class));
+    assertThat(severities.getValue().get("AccessToDisposedClosure")).isEqualTo(ReSharperSeverity.WARNING);
+    assertThat(severities.getValue().get("UnusedVariable")).isEqualTo(ReSharperSeverity.WARNING);
+  }
+
+  @Test
+  public void shared_run_key_independent_of_the_language_order() {
+    Settings settings = mockSettings("MyLibrary", "CSharpPlayground.sln", "inspectcode.exe");
+    RulesProfile profile = mock(RulesProfile.class);
+    List<ActiveRule> csActiveRules = mockActiveRules("CustomCSharpInspection");
+    when(profile.getActiveRulesByRepository("resharper-cs")).thenReturn(csActiveRules);
+    List<ActiveRule> vbActiveRules = mockActiveRules("CustomVBInspection");
+    when(profile.getActiveRulesByRepository("resharper-vbnet")).thenReturn(vbActiveRules);
+    ReSharperRuleIndex cs = new ReSharperRuleIndex("resharper-cs", profile);
+    ReSharperRuleIndex vb = new ReSharperRuleIndex("resharper-vbnet", profile);
+    File solution = new File("CSharpPlayground.sln");
+
+    Map<String, ReSharperSeverity> csFirst = ReSharperRuleIndex.severities(ImmutableList.of(cs, vb));
+    Map<String, ReSharperSeverity> vbFirst = ReSharperRuleIndex.severities(ImmutableList.of(vb, cs));
+    assertThat(csFirst.toString()).isNotEqualTo(vbFirst.toString());
+
+    assertThat(ReSharperSensor.sharedRunKey(settings, solution, csFirst, null))
+      .isEqualTo(ReSharperSensor.sharedRunKey(settings, solution, vbFirst, null));
+  }
+
+  @Test
+  public void analyze_offset_only_issues() throws Exception {
+    File solutionDir = tmp.newFolder("solution");
+    Settings settings = mockSettings("MyLibrary", new File(solutionDir, "CSharpPlayground.sln").getAbsolutePath(), "inspectcode.exe");
+    RulesProfile profile = mock(RulesProfile.class);
+    List<ActiveRule> activeRules = mockActiveRules("RedundantUsingDirective");
+    when(profile.getActiveRulesByRepository("foo-resharper")).thenReturn(activeRules);
+
+    File workingDir = tmp.newFolder("working-dir");
+    File file = new File(solutionDir, "Class1.cs");
+    Files.write("using System;\r\nusing System.Linq;\r\n\r\nclass Class1 {}\r\n", file, Charsets.UTF_8);
+    ModuleFileSystem fileSystem = mock(ModuleFileSystem.class);
+    when(fileSystem.workingDir()).thenReturn(workingDir);
+    when(fileSystem.sourceCharset()).thenReturn(Charsets.UTF_8);
+    when(fileSystem.files(Mockito.any(FileQuery.class))).thenReturn(ImmutableList.of(file));
+
+    ResourcePerspectives perspectives = mock(ResourcePerspectives.class);
+    FileProvider fileProvider = mock(FileProvider.class);
+    Issuable issuable = mockIssuable(perspectives, fileProvider, file);
+    IssueBuilder issueBuilder = issuable.newIssueBuilder();
+
+    ReSharperReportParser parser = mockParser(new File(workingDir, "resharper-report.xml"),
+      new ReSharperIssue(100, "RedundantUsingDirective", "Class1.cs", null, 0, "First message"),
+      new ReSharperIssue(200, "RedundantUsingDirective", "Class1.cs", null, 15, "Second message"),
+      new ReSharperIssue(300, "RedundantUsingDirective", "Class1.cs", null, 1000, "Third message"));
+
+    new ReSharperSensor(new ReSharperConfiguration("foo", "foo-resharper"), settings, profile, fileSystem, perspectives)
+      .analyse(mock(SensorContext.class), fileProvider, mock(ReSharperDotSettingsWriter.class), parser, mock(ReSharperExecutor.class));
+
+    verify(issueBuilder).line(1);
+    verify(issueBuilder).line(2);
+    verify(issuable, Mockito.times(2)).addIssue(Mockito.any(Issue.class));
+    String runProfile = Files.toString(new File(workingDir, ReSharperRunProfile.FILE_NAME), Charsets.UTF_8);
+    assertThat(runProfile).contains("\"issuesResolvedFromOffset\": 2");
+    assertThat(runProfile).contains("\"issuesSkippedInvalidOffset\": 1");
   }
 
   //@Test
@@ -195,6 +578,66 @@ public class ReSharperSensorTest {
     return sonarFile;
   }
 
+  private static class IsLanguageQuery extends ArgumentMatcher<FileQuery> {
+
+    private final String languageKey;
+
+    public IsLanguageQuery() {
+      this(null);
+    }
+
+    public IsLanguageQuery(@Nullable String languageKey) {
+      this.languageKey = languageKey;
+    }
+
+    @Override
+    public boolean matches(Object query) {
+      return query != null && !((FileQuery) query).languages().isEmpty()
+        && (languageKey == null || ((FileQuery) query).languages().contains(languageKey));
+    }
+
+  }
+
+  private static class IsSourceQuery extends ArgumentMatcher<FileQuery> {
+
+    @Override
+    public boolean matches(Object query) {
+      return query != null && ((FileQuery) query).languages().isEmpty();
+    }
+
+  }
+
+  private static ReSharperReportParser mockParser(File reportFile, final ReSharperIssue... issues) {
+    ReSharperReportParser parser = mock(ReSharperReportParser.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ReSharperIssueFilter filter = (ReSharperIssueFilter) invocation.getArguments()[1];
+        ReSharperRawIssueHandler handler = (ReSharperRawIssueHandler) invocation.getArguments()[2];
+        for (ReSharperIssue issue : issues) {
+          if (filter.accept(issue.ruleKey(), issue.filePath())) {
+            handler.handle(issue.reportLine(), issue.ruleKey(), issue.filePath(),
+              issue.line() == null ? ReSharperRawIssueHandler.NONE : issue.line(),
+              issue.offset() == null ? ReSharperRawIssueHandler.NONE : issue.offset(), issue.message());
+          }
+        }
+        return null;
+      }
+    }).when(parser).parse(Mockito.eq(reportFile), Mockito.any(ReSharperIssueFilter.class), Mockito.any(ReSharperRawIssueHandler.class));
+    Mockito.doCallRealMethod().when(parser).parse(Mockito.eq(reportFile), Mockito.any(ReSharperIssueFilter.class), Mockito.any(ReSharperIssueHandler.class));
+    return parser;
+  }
+
+  private static Issuable mockIssuable(ResourcePerspectives perspectives, FileProvider fileProvider, File file) {
+    org.sonar.api.resources.File sonarFile = mockSonarFile("foo");
+    when(fileProvider.fromIOFile(file)).thenReturn(sonarFile);
+    Issuable issuable = mock(Issuable.class);
+    IssueBuilder issueBuilder = mockIssueBuilder();
+    when(issuable.newIssueBuilder()).thenReturn(issueBuilder);
+    when(perspectives.as(Issuable.class, sonarFile)).thenReturn(issuable);
+    return issuable;
+  }
+
   private static IssueBuilder mockIssueBuilder() {
     IssueBuilder issueBuilder = mock(IssueBuilder.class);
     when(issueBuilder.ruleKey(Mockito.any(RuleKey.class))).thenReturn(issueBuilder);
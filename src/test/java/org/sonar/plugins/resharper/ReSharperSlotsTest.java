@@ -0,0 +1,145 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperSlotsTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void limit_concurrent_runs() throws Exception {
+    final ReSharperSlots slots = new ReSharperSlots(tmp.getRoot(), 2, 0, 10);
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    ReSharperLock first = slots.acquire(runProfile);
+    ReSharperLock second = slots.acquire(runProfile);
+    assertThat(first.file()).isNotEqualTo(second.file());
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<ReSharperLock> third = executorService.submit(new Callable<ReSharperLock>() {
+        @Override
+        public ReSharperLock call() {
+          return slots.acquire(null);
+        }
+      });
+      Thread.sleep(100);
+      assertThat(third.isDone()).isFalse();
+
+      second.release();
+      assertThat(third.get(10, TimeUnit.SECONDS).file()).isEqualTo(second.file());
+      third.get().release();
+      first.release();
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void wait_for_free_memory() throws Exception {
+    final AtomicLong freeMemoryMb = new AtomicLong(100);
+    final ReSharperSlots slots = new ReSharperSlots(tmp.getRoot(), 2, 1000, 10) {
+      @Override
+      long freePhysicalMemoryMb() {
+        return freeMemoryMb.get();
+      }
+    };
+
+    // Admitted as no other process could free memory
+    ReSharperLock first = slots.acquire(null);
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<ReSharperLock> second = executorService.submit(new Callable<ReSharperLock>() {
+        @Override
+        public ReSharperLock call() {
+          return slots.acquire(null);
+        }
+      });
+      Thread.sleep(100);
+      assertThat(second.isDone()).isFalse();
+
+      freeMemoryMb.set(2000);
+      second.get(10, TimeUnit.SECONDS).release();
+      first.release();
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void probe_other_slots_without_touching_them() throws Exception {
+    final ReSharperSlots slots = new ReSharperSlots(tmp.getRoot(), 2, 1000, 10) {
+      @Override
+      long freePhysicalMemoryMb() {
+        return 100;
+      }
+    };
+    File otherSlot = new File(tmp.getRoot(), "inspectcode-slot-0.lock");
+    ReSharperLock other = ReSharperLock.tryAcquire(otherSlot);
+    String owner = ReSharperLock.owner(otherSlot);
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor();
+    try {
+      Future<ReSharperLock> next = executorService.submit(new Callable<ReSharperLock>() {
+        @Override
+        public ReSharperLock call() {
+          return slots.acquire(null);
+        }
+      });
+      Thread.sleep(100);
+      assertThat(next.isDone()).isFalse();
+      assertThat(ReSharperLock.owner(otherSlot)).isEqualTo(owner);
+      assertThat(ReSharperLockTest.tryAcquireInOtherProcess(otherSlot)).isFalse();
+
+      other.release();
+      next.get(10, TimeUnit.SECONDS).release();
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void record_wait_time() throws Exception {
+    ReSharperRunProfile runProfile = new ReSharperRunProfile();
+    new ReSharperSlots(tmp.getRoot(), 1, 0).acquire(runProfile).release();
+
+    File profile = tmp.newFile("profile.json");
+    runProfile.write(profile);
+    assertThat(Files.toString(profile, Charsets.UTF_8)).contains("\"waitSlot\"");
+  }
+
+}
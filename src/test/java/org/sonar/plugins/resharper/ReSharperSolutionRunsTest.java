@@ -0,0 +1,147 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.resources.Project;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReSharperSolutionRunsTest {
+
+  @Test
+  public void run_once_per_key() throws Exception {
+    ReSharperSolutionRuns solutionRuns = new ReSharperSolutionRuns();
+    Callable<File> inspection = mockInspection(new File("report.xml"));
+
+    ReSharperSolutionRuns.Run run = solutionRuns.start("key", 1, inspection, MoreExecutors.sameThreadExecutor());
+    assertThat(solutionRuns.start("key", 1, inspection, MoreExecutors.sameThreadExecutor())).isSameAs(run);
+    assertThat(run.report().get()).isEqualTo(new File("report.xml"));
+    verify(inspection).call();
+
+    assertThat(solutionRuns.start("other", 1, inspection, MoreExecutors.sameThreadExecutor())).isNotSameAs(run);
+  }
+
+  @Test
+  public void parse_once_and_release_after_the_last_user() throws Exception {
+    ReSharperSolutionRuns.Run run = new ReSharperSolutionRuns().start("key", 2, mockInspection(new File("report.xml")), MoreExecutors.sameThreadExecutor());
+    ReSharperReportParser parser = mockParser(new File("report.xml"));
+
+    ReSharperIssueStore issues = run.issues(parser, ReSharperIssueFilter.ALL);
+    assertThat(issues.size()).isEqualTo(1);
+    assertThat(run.issues(parser, ReSharperIssueFilter.ALL)).isSameAs(issues);
+    verify(parser, Mockito.times(1)).parse(Mockito.eq(new File("report.xml")), Mockito.eq(ReSharperIssueFilter.ALL), Mockito.any(ReSharperRawIssueHandler.class));
+
+    // An unexpected user parses the report again
+    ReSharperIssueStore reparsed = run.issues(parser, ReSharperIssueFilter.ALL);
+    assertThat(reparsed).isNotSameAs(issues);
+    assertThat(reparsed.size()).isEqualTo(1);
+    verify(parser, Mockito.times(2)).parse(Mockito.eq(new File("report.xml")), Mockito.eq(ReSharperIssueFilter.ALL), Mockito.any(ReSharperRawIssueHandler.class));
+  }
+
+  @Test
+  public void keep_the_issues_for_the_next_modules_only() throws Exception {
+    ReSharperSolutionRuns solutionRuns = new ReSharperSolutionRuns();
+    Project root = new Project("root");
+    Project module1 = new Project("module1");
+    module1.setParent(root);
+    Project module2 = new Project("module2");
+    module2.setParent(root);
+    Project moduleWithoutSources = new Project("moduleWithoutSources");
+    moduleWithoutSources.setParent(root);
+    Callable<File> inspection = mockInspection(new File("report.xml"));
+    ReSharperReportParser parser = mockParser(new File("report.xml"));
+
+    solutionRuns.startModule(module1);
+    assertThat(solutionRuns.isMultiModule()).isTrue();
+    ReSharperSolutionRuns.Run run = solutionRuns.start("key", 1, inspection, MoreExecutors.sameThreadExecutor());
+    ReSharperIssueStore issues = run.issues(parser, ReSharperIssueFilter.ALL);
+
+    solutionRuns.startModule(module2);
+    assertThat(solutionRuns.start("key", 1, inspection, MoreExecutors.sameThreadExecutor())).isSameAs(run);
+    assertThat(run.issues(parser, ReSharperIssueFilter.ALL)).isSameAs(issues);
+
+    // Neither the module without sources nor the root use the run: released once the root starts
+    solutionRuns.startModule(moduleWithoutSources);
+    solutionRuns.startModule(root);
+    verify(parser, Mockito.times(1)).parse(Mockito.eq(new File("report.xml")), Mockito.eq(ReSharperIssueFilter.ALL), Mockito.any(ReSharperRawIssueHandler.class));
+    assertThat(run.issues(parser, ReSharperIssueFilter.ALL)).isNotSameAs(issues);
+    verify(parser, Mockito.times(2)).parse(Mockito.eq(new File("report.xml")), Mockito.eq(ReSharperIssueFilter.ALL), Mockito.any(ReSharperRawIssueHandler.class));
+  }
+
+  @Test
+  public void release_after_the_last_user_of_the_last_module() throws Exception {
+    ReSharperSolutionRuns solutionRuns = new ReSharperSolutionRuns();
+    Project project = new Project("project");
+    ReSharperReportParser parser = mockParser(new File("report.xml"));
+
+    solutionRuns.startModule(project);
+    assertThat(solutionRuns.isMultiModule()).isFalse();
+    ReSharperSolutionRuns.Run run = solutionRuns.start("key", 2, mockInspection(new File("report.xml")), MoreExecutors.sameThreadExecutor());
+    // The other language of the module does not register again
+    assertThat(solutionRuns.start("key", 2, mockInspection(new File("report.xml")), MoreExecutors.sameThreadExecutor())).isSameAs(run);
+
+    ReSharperIssueStore issues = run.issues(parser, ReSharperIssueFilter.ALL);
+    assertThat(run.issues(parser, ReSharperIssueFilter.ALL)).isSameAs(issues);
+    assertThat(run.issues(parser, ReSharperIssueFilter.ALL)).isNotSameAs(issues);
+  }
+
+  @Test
+  public void mark_used() {
+    ReSharperSolutionRuns.Run run = new ReSharperSolutionRuns().start("key", 1, mockInspection(new File("report.xml")), MoreExecutors.sameThreadExecutor());
+
+    assertThat(run.markUsed()).isFalse();
+    assertThat(run.markUsed()).isTrue();
+  }
+
+  private static ReSharperReportParser mockParser(File reportFile) {
+    ReSharperReportParser parser = mock(ReSharperReportParser.class);
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ((ReSharperRawIssueHandler) invocation.getArguments()[2]).handle(100, "AccessToDisposedClosure", "Class1.cs", 1, ReSharperRawIssueHandler.NONE, "Message");
+        return null;
+      }
+    }).when(parser).parse(Mockito.eq(reportFile), Mockito.eq(ReSharperIssueFilter.ALL), Mockito.any(ReSharperRawIssueHandler.class));
+    return parser;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Callable<File> mockInspection(File report) {
+    Callable<File> inspection = mock(Callable.class);
+    try {
+      when(inspection.call()).thenReturn(report);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    return inspection;
+  }
+
+}
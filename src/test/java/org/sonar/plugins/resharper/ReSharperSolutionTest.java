@@ -0,0 +1,42 @@
+/*
+ * SonarQube ReSharper Plugin
+ * Copyright (C) 2014 SonarSource
+ * dev@sonar.codehaus.org
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.resharper;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReSharperSolutionTest {
+
+  @Test
+  public void test() {
+    File file = new File("src/test/resources/ReSharperSolutionTest/CSharpPlayground.sln");
+    ReSharperSolution solution = ReSharperSolution.parse(file);
+
+    assertThat(solution.file()).isEqualTo(file);
+    assertThat(solution.projects()).hasSize(2);
+    assertThat(solution.projects().get(0).name()).isEqualTo("MyLibrary");
+    assertThat(solution.projects().get(0).file()).isEqualTo(new File(file.getAbsoluteFile().getParentFile(), "MyLibrary/MyLibrary.csproj"));
+    assertThat(solution.projects().get(1).name()).isEqualTo("MyVbLibrary");
+  }
+
+}
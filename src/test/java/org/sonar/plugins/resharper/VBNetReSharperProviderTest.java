@@ -20,6 +20,7 @@
 package org.sonar.plugins.resharper;
 
 import org.junit.Test;
+import org.sonar.plugins.resharper.VBNetReSharperProvider.VBNetReSharperInitializer;
 import org.sonar.plugins.resharper.VBNetReSharperProvider.VBNetReSharperRuleRepository;
 import org.sonar.plugins.resharper.VBNetReSharperProvider.VBNetReSharperSensor;
 
@@ -31,7 +32,8 @@ public class VBNetReSharperProviderTest {
   public void test() {
     assertThat(VBNetReSharperProvider.extensions()).containsOnly(
       VBNetReSharperRuleRepository.class,
-      VBNetReSharperSensor.class);
+      VBNetReSharperSensor.class,
+      VBNetReSharperInitializer.class);
   }
 
 }